@@ -0,0 +1,246 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * AsyncLibraryManager offers the LibraryManager operations as CompletableFutures,
+ * so a desk or kiosk session never holds a thread while the backend works.
+ *
+ * Calls run on virtual threads where the runtime has them (Java 21 and later)
+ * and otherwise on a small pool of platform threads. Either way, at most
+ * maxConcurrency calls reach the backend at once; the rest wait in line
+ * without occupying a connection. Every future fails with a TimeoutException
+ * after the configured timeout. A call still waiting for a slot by then is
+ * dropped and never reaches the backend. A call that has already started is
+ * not interrupted, so a slow JDBC statement still completes and then frees
+ * its slot.
+ */
+public class AsyncLibraryManager implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(AsyncLibraryManager.class.getName());
+    // Matches the default JDBC pool size, so waiting happens here rather than inside the pool
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+    
+    private final LibraryManager manager;
+    private final ExecutorService executor;
+    private final Semaphore backendSlots;
+    private final long timeoutMillis;
+    
+    // Limits can be set with -Dlibrary.async.maxConcurrency and -Dlibrary.async.timeoutMillis
+    public AsyncLibraryManager(LibraryManager manager) {
+        this(manager, Integer.getInteger("library.async.maxConcurrency", DEFAULT_MAX_CONCURRENCY),
+             Long.getLong("library.async.timeoutMillis", DEFAULT_TIMEOUT_MILLIS));
+    }
+    
+    public AsyncLibraryManager(LibraryManager manager, int maxConcurrency, long timeoutMillis) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.manager = manager;
+        this.backendSlots = new Semaphore(maxConcurrency, true);
+        this.timeoutMillis = timeoutMillis;
+        this.executor = newExecutor(maxConcurrency);
+    }
+    
+    // Virtual threads when available; otherwise as many platform threads as may call the backend at once
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            LOGGER.info("Virtual threads not available, using " + maxConcurrency + " platform threads");
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(maxConcurrency, r -> {
+                Thread t = new Thread(r, "library-async-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+    
+    // Runs the call once a backend slot is free and fails the future if it takes longer than the timeout
+    private <T> CompletableFuture<T> supply(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (timeoutMillis > 0) {
+            result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        executor.execute(() -> {
+            try {
+                backendSlots.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(ex);
+                return;
+            }
+            try {
+                // Timed out or cancelled while waiting: the caller was told it failed, so it must not happen
+                if (!result.isDone()) {
+                    result.complete(call.get());
+                }
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            } finally {
+                backendSlots.release();
+            }
+        });
+        return result;
+    }
+    
+    // Student operations
+    public CompletableFuture<Boolean> addStudent(String studentId, String name, String email, String address, String phone) {
+        return supply(() -> manager.addStudent(studentId, name, email, address, phone));
+    }
+    
+    public CompletableFuture<Boolean> updateStudent(String studentId, String name, String email, String address, String phone) {
+        return supply(() -> manager.updateStudent(studentId, name, email, address, phone));
+    }
+    
+    public CompletableFuture<Boolean> removeStudent(String studentId) {
+        return supply(() -> manager.removeStudent(studentId));
+    }
+    
+    public CompletableFuture<Student> getStudent(String studentId) {
+        return supply(() -> manager.getStudent(studentId));
+    }
+    
+    // Book operations
+    public CompletableFuture<Boolean> addBook(String bookId, String title, String author, String isbn, String genre, int totalCopies) {
+        return supply(() -> manager.addBook(bookId, title, author, isbn, genre, totalCopies));
+    }
+    
+    public CompletableFuture<Boolean> updateBook(String bookId, String title, String author, String isbn, String genre, int totalCopies) {
+        return supply(() -> manager.updateBook(bookId, title, author, isbn, genre, totalCopies));
+    }
+    
+    public CompletableFuture<Boolean> removeBook(String bookId) {
+        return supply(() -> manager.removeBook(bookId));
+    }
+    
+    public CompletableFuture<Book> getBook(String bookId) {
+        return supply(() -> manager.getBook(bookId));
+    }
+    
+    public CompletableFuture<List<Book>> searchBooks(String keyword) {
+        return supply(() -> manager.searchBooks(keyword));
+    }
+    
+    public CompletableFuture<List<String>> autocomplete(String prefix, int limit) {
+        return supply(() -> manager.autocomplete(prefix, limit));
+    }
+    
+    public CompletableFuture<List<Book>> getAvailableBooks() {
+        return supply(manager::getAvailableBooks);
+    }
+    
+    // Borrowing and returning
+    public CompletableFuture<String> borrowBook(String studentId, String bookId) {
+        return supply(() -> manager.borrowBook(studentId, bookId));
+    }
+    
+    public CompletableFuture<String> borrowBook(String studentId, String bookId, int borrowPeriodDays) {
+        return supply(() -> manager.borrowBook(studentId, bookId, borrowPeriodDays));
+    }
+    
+    public CompletableFuture<String> returnBook(String studentId, String bookId) {
+        return supply(() -> manager.returnBook(studentId, bookId));
+    }
+    
+    public CompletableFuture<List<String>> borrowBooks(String studentId, List<String> bookIds) {
+        return supply(() -> manager.borrowBooks(studentId, bookIds));
+    }
+    
+    public CompletableFuture<List<String>> returnBooks(String studentId, List<String> bookIds) {
+        return supply(() -> manager.returnBooks(studentId, bookIds));
+    }
+    
+    public CompletableFuture<String> renewBook(String studentId, String bookId, int additionalDays) {
+        return supply(() -> manager.renewBook(studentId, bookId, additionalDays));
+    }
+    
+    public CompletableFuture<List<BorrowRecord>> getActiveBorrowRecords(String studentId) {
+        return supply(() -> manager.getActiveBorrowRecords(studentId));
+    }
+    
+    public CompletableFuture<List<BorrowRecord>> getBorrowHistory(String studentId) {
+        return supply(() -> manager.getBorrowHistory(studentId));
+    }
+    
+    /**
+     * Loads what a desk shows before a checkout - the student, the book and
+     * the student's current loans. The three reads are independent and run
+     * at the same time, so the wait is the slowest of them, not their sum.
+     */
+    public CompletableFuture<DeskView> getDeskView(String studentId, String bookId) {
+        CompletableFuture<Student> student = getStudent(studentId);
+        CompletableFuture<Book> book = getBook(bookId);
+        CompletableFuture<List<BorrowRecord>> activeLoans = getActiveBorrowRecords(studentId);
+        return CompletableFuture.allOf(student, book, activeLoans)
+                .thenApply(done -> new DeskView(student.join(), book.join(), activeLoans.join()));
+    }
+    
+    // Hold operations
+    public CompletableFuture<String> placeHold(String studentId, String bookId) {
+        return supply(() -> manager.placeHold(studentId, bookId));
+    }
+    
+    public CompletableFuture<String> cancelHold(String studentId, String bookId) {
+        return supply(() -> manager.cancelHold(studentId, bookId));
+    }
+    
+    public CompletableFuture<List<Hold>> getHoldQueue(String bookId) {
+        return supply(() -> manager.getHoldQueue(bookId));
+    }
+    
+    // Reports
+    public CompletableFuture<List<BorrowRecord>> getOverdueBooks() {
+        return supply(manager::getOverdueBooks);
+    }
+    
+    public CompletableFuture<List<BorrowRecord>> getBooksDueWithin(int days) {
+        return supply(() -> manager.getBooksDueWithin(days));
+    }
+    
+    public CompletableFuture<LibraryManager.LibraryStatistics> getLibraryStatistics() {
+        return supply(manager::getLibraryStatistics);
+    }
+    
+    public LibraryManager getManager() {
+        return manager;
+    }
+    
+    public int getWaitingCalls() {
+        return backendSlots.getQueueLength();
+    }
+    
+    // Stops accepting calls; calls already submitted still complete
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+    
+    // The reads behind a checkout screen; student or book is null if not found
+    public static class DeskView {
+        private final Student student;
+        private final Book book;
+        private final List<BorrowRecord> activeLoans;
+        
+        public DeskView(Student student, Book book, List<BorrowRecord> activeLoans) {
+            this.student = student;
+            this.book = book;
+            this.activeLoans = activeLoans;
+        }
+        
+        public Student getStudent() { return student; }
+        public Book getBook() { return book; }
+        public List<BorrowRecord> getActiveLoans() { return activeLoans; }
+        
+        public boolean canBorrow() {
+            return student != null && book != null && student.canBorrowMore() && book.isAvailable();
+        }
+    }
+}
\ No newline at end of file
@@ -1,18 +1,23 @@
 /**
  * Book class represents a book in the library management system
+ *
+ * Author and genre repeat across many titles, so they are kept as codes into
+ * the shared CatalogDictionary instances rather than as per-book strings.
  */
 public class Book {
     private String bookId;
     private String title;
-    private String author;
+    private int authorCode;
     private String isbn;
     private boolean isAvailable;
-    private String genre;
+    private int genreCode;
     private int totalCopies;
     private int availableCopies;
     
     // Default constructor
     public Book() {
+        this.authorCode = CatalogDictionary.NONE;
+        this.genreCode = CatalogDictionary.NONE;
         this.isAvailable = true;
         this.totalCopies = 1;
         this.availableCopies = 1;
@@ -22,30 +27,44 @@ public class Book {
     public Book(String bookId, String title, String author, String isbn, String genre, int totalCopies) {
         this.bookId = bookId;
         this.title = title;
-        this.author = author;
+        this.authorCode = CatalogDictionary.AUTHORS.encode(author);
         this.isbn = isbn;
-        this.genre = genre;
+        this.genreCode = CatalogDictionary.GENRES.encode(genre);
         this.totalCopies = totalCopies;
         this.availableCopies = totalCopies;
         this.isAvailable = totalCopies > 0;
     }
     
+    // Copy constructor
+    public Book(Book other) {
+        this.bookId = other.bookId;
+        this.title = other.title;
+        this.authorCode = other.authorCode;
+        this.isbn = other.isbn;
+        this.genreCode = other.genreCode;
+        this.totalCopies = other.totalCopies;
+        this.availableCopies = other.availableCopies;
+        this.isAvailable = other.isAvailable;
+    }
+    
     // Getters
     public String getBookId() { return bookId; }
     public String getTitle() { return title; }
-    public String getAuthor() { return author; }
+    public String getAuthor() { return CatalogDictionary.AUTHORS.decode(authorCode); }
     public String getIsbn() { return isbn; }
     public boolean isAvailable() { return isAvailable; }
-    public String getGenre() { return genre; }
+    public String getGenre() { return CatalogDictionary.GENRES.decode(genreCode); }
     public int getTotalCopies() { return totalCopies; }
     public int getAvailableCopies() { return availableCopies; }
+    public int getAuthorCode() { return authorCode; }
+    public int getGenreCode() { return genreCode; }
     
     // Setters
     public void setBookId(String bookId) { this.bookId = bookId; }
     public void setTitle(String title) { this.title = title; }
-    public void setAuthor(String author) { this.author = author; }
+    public void setAuthor(String author) { this.authorCode = CatalogDictionary.AUTHORS.encode(author); }
     public void setIsbn(String isbn) { this.isbn = isbn; }
-    public void setGenre(String genre) { this.genre = genre; }
+    public void setGenre(String genre) { this.genreCode = CatalogDictionary.GENRES.encode(genre); }
     public void setTotalCopies(int totalCopies) { 
         this.totalCopies = totalCopies;
         updateAvailability();
@@ -80,7 +99,7 @@ public class Book {
     @Override
     public String toString() {
         return String.format("Book{ID='%s', Title='%s', Author='%s', ISBN='%s', Genre='%s', Available=%d/%d}", 
-                           bookId, title, author, isbn, genre, availableCopies, totalCopies);
+                           bookId, title, getAuthor(), isbn, getGenre(), availableCopies, totalCopies);
     }
     
     @Override
@@ -0,0 +1,334 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BookSearchIndex is an in-process inverted index over book titles, authors and ISBNs.
+ * It is updated incrementally as books are added, changed or removed, and answers
+ * multi-term keyword queries with ranked book ids.
+ *
+ * Books are partitioned by id into shards, each with its own postings and lock.
+ * Once the index holds at least parallelThreshold books a query is scored on all
+ * shards at once in the fork-join pool, and the ranked shard results are merged
+ * pairwise as the tasks join. Smaller indexes search their shards in turn, which
+ * is cheaper than scheduling tasks. Either way the order is the same total order.
+ */
+public class BookSearchIndex {
+    // Field weights used for ranking - an ISBN hit is the strongest signal
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int ISBN_WEIGHT = 5;
+    // Whole-word matches rank above prefix matches
+    private static final int EXACT_MATCH_BONUS = 2;
+    // Below this many books a query runs on the calling thread
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+    
+    // More terms matched first, then higher score, then title, then id
+    private static final Comparator<Hit> RANKING = (a, b) -> {
+        int byTerms = Integer.compare(b.matchedTerms, a.matchedTerms);
+        if (byTerms != 0) return byTerms;
+        int byScore = Integer.compare(b.score, a.score);
+        if (byScore != 0) return byScore;
+        int byTitle = a.title.compareToIgnoreCase(b.title);
+        return byTitle != 0 ? byTitle : a.bookId.compareTo(b.bookId);
+    };
+    
+    private final Shard[] shards;
+    private final int parallelThreshold;
+    
+    // One shard per core; the threshold can be set with -Dlibrary.search.parallelThreshold
+    public BookSearchIndex() {
+        this(Runtime.getRuntime().availableProcessors(),
+             Integer.getInteger("library.search.parallelThreshold", DEFAULT_PARALLEL_THRESHOLD));
+    }
+    
+    public BookSearchIndex(int shardCount, int parallelThreshold) {
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+    
+    public void index(Book book) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(book.getTitle())) {
+            weights.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(book.getAuthor())) {
+            weights.merge(token, AUTHOR_WEIGHT, Integer::sum);
+        }
+        String isbn = normalizeIsbn(book.getIsbn());
+        if (!isbn.isEmpty()) {
+            weights.merge(isbn, ISBN_WEIGHT, Integer::sum);
+        }
+        shardOf(book.getBookId()).index(book.getBookId(), book.getTitle() != null ? book.getTitle() : "", weights);
+    }
+    
+    public void remove(String bookId) {
+        shardOf(bookId).remove(bookId);
+    }
+    
+    public void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+    
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+    
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    private Shard shardOf(String bookId) {
+        int hash = bookId != null ? bookId.hashCode() : 0;
+        hash ^= (hash >>> 16);
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+    
+    /**
+     * Returns the ids of books matching any query term, best match first.
+     * Each term matches whole words and word prefixes; books matching more
+     * terms, in stronger fields, rank higher.
+     */
+    public List<String> search(String keyword) {
+        // A keyword made only of ISBN characters is one term, so "978-0451" is not split at the hyphen
+        String isbnTerm = normalizeIsbn(keyword);
+        List<String> terms = isbnTerm.length() >= 3
+                ? List.of(isbnTerm)
+                : new ArrayList<>(new HashSet<>(tokenize(keyword)));
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<Hit> hits;
+        if (shards.length > 1 && size() >= parallelThreshold) {
+            hits = ForkJoinPool.commonPool().invoke(new SearchTask(terms, 0, shards.length));
+        } else {
+            hits = new ArrayList<>();
+            for (Shard shard : shards) {
+                hits = merge(hits, shard.search(terms));
+            }
+        }
+        List<String> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            result.add(hit.bookId);
+        }
+        return result;
+    }
+    
+    // Merges two lists already in ranking order
+    private static List<Hit> merge(List<Hit> left, List<Hit> right) {
+        if (left.isEmpty()) return right;
+        if (right.isEmpty()) return left;
+        List<Hit> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            merged.add(RANKING.compare(left.get(i), right.get(j)) <= 0 ? left.get(i++) : right.get(j++));
+        }
+        merged.addAll(left.subList(i, left.size()));
+        merged.addAll(right.subList(j, right.size()));
+        return merged;
+    }
+    
+    // Searches a range of shards, splitting it in half until one shard is left
+    private class SearchTask extends RecursiveTask<List<Hit>> {
+        private static final long serialVersionUID = 1L;
+        private final List<String> terms;
+        private final int from;
+        private final int to;
+        
+        SearchTask(List<String> terms, int from, int to) {
+            this.terms = terms;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected List<Hit> compute() {
+            if (to - from == 1) {
+                return shards[from].search(terms);
+            }
+            int mid = (from + to) >>> 1;
+            SearchTask left = new SearchTask(terms, from, mid);
+            left.fork();
+            List<Hit> right = new SearchTask(terms, mid, to).compute();
+            return merge(left.join(), right);
+        }
+    }
+    
+    private static class Hit {
+        private final String bookId;
+        private final String title;
+        private final int score;
+        private final int matchedTerms;
+        
+        Hit(String bookId, String title, int score, int matchedTerms) {
+            this.bookId = bookId;
+            this.title = title;
+            this.score = score;
+            this.matchedTerms = matchedTerms;
+        }
+    }
+    
+    // The postings of the books hashed to one shard
+    private static class Shard {
+        // token -> (bookId -> summed field weight)
+        private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+        // bookId -> tokens it was indexed under, for removal
+        private final Map<String, Set<String>> bookTokens = new HashMap<>();
+        // bookId -> title, used as a stable tie-breaker
+        private final Map<String, String> titles = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        
+        void index(String bookId, String title, Map<String, Integer> weights) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(bookId);
+                for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                    postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(bookId, entry.getValue());
+                }
+                bookTokens.put(bookId, weights.keySet());
+                titles.put(bookId, title);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void remove(String bookId) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(bookId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void clear() {
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                bookTokens.clear();
+                titles.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        int size() {
+            lock.readLock().lock();
+            try {
+                return bookTokens.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        private void removeUnlocked(String bookId) {
+            Set<String> tokens = bookTokens.remove(bookId);
+            titles.remove(bookId);
+            if (tokens == null) {
+                return;
+            }
+            for (String token : tokens) {
+                Map<String, Integer> docs = postings.get(token);
+                if (docs != null) {
+                    docs.remove(bookId);
+                    if (docs.isEmpty()) {
+                        postings.remove(token);
+                    }
+                }
+            }
+        }
+        
+        // Scores this shard's books against the terms, returned in ranking order
+        List<Hit> search(List<String> terms) {
+            Map<String, Integer> scores = new HashMap<>();
+            Map<String, Integer> matchedTerms = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (String term : terms) {
+                    Set<String> matchedByTerm = new HashSet<>();
+                    // All tokens starting with the term form one contiguous range of the sorted map
+                    for (Map.Entry<String, Map<String, Integer>> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                        int bonus = entry.getKey().equals(term) ? EXACT_MATCH_BONUS : 1;
+                        for (Map.Entry<String, Integer> doc : entry.getValue().entrySet()) {
+                            scores.merge(doc.getKey(), doc.getValue() * bonus, Integer::sum);
+                            matchedByTerm.add(doc.getKey());
+                        }
+                    }
+                    for (String bookId : matchedByTerm) {
+                        matchedTerms.merge(bookId, 1, Integer::sum);
+                    }
+                }
+                
+                List<Hit> hits = new ArrayList<>(scores.size());
+                for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+                    String bookId = entry.getKey();
+                    hits.add(new Hit(bookId, titles.get(bookId), entry.getValue(), matchedTerms.get(bookId)));
+                }
+                hits.sort(RANKING);
+                return hits;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+    
+    // Splits text into lowercase alphanumeric words
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+    
+    // ISBNs are indexed without hyphens or spaces so "978-0451524935" and "9780451524935" match
+    static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (Character.isDigit(c) || c == 'X' || c == 'x') {
+                digits.append(Character.toLowerCase(c));
+            } else if (c != '-' && c != ' ') {
+                return "";
+            }
+        }
+        return digits.toString();
+    }
+}
\ No newline at end of file
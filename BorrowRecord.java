@@ -5,6 +5,8 @@ import java.time.format.DateTimeFormatter;
  * BorrowRecord class represents a book borrowing transaction
  */
 public class BorrowRecord {
+    public static final double FINE_PER_DAY = 0.50;
+    
     private String recordId;
     private String studentId;
     private String bookId;
@@ -39,6 +41,12 @@ public class BorrowRecord {
         this.fineAmount = fineAmount;
     }
     
+    // Copy constructor
+    public BorrowRecord(BorrowRecord other) {
+        this(other.recordId, other.studentId, other.bookId, other.borrowDate, other.dueDate,
+             other.returnDate, other.isReturned, other.fineAmount);
+    }
+    
     // Getters
     public String getRecordId() { return recordId; }
     public String getStudentId() { return studentId; }
@@ -72,10 +80,14 @@ public class BorrowRecord {
     }
     
     public void calculateFine() {
-        if (isOverdue()) {
-            long daysOverdue = getDaysOverdue();
-            this.fineAmount = daysOverdue * 0.50; // $0.50 per day fine
-        }
+        calculateFine(LocalDate.now());
+    }
+    
+    // Fine for the days past due up to the return date, or up to asOf while the book is still out
+    public void calculateFine(LocalDate asOf) {
+        LocalDate end = isReturned && returnDate != null ? returnDate : asOf;
+        long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(dueDate, end);
+        this.fineAmount = daysOverdue > 0 ? daysOverdue * FINE_PER_DAY : 0.0;
     }
     
     public String getFormattedBorrowDate() {
@@ -0,0 +1,265 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * BulkImporter streams book and student rows from CSV/TSV files into a storage
+ * backend in fixed-size chunks, so memory use stays constant regardless of file size.
+ *
+ * Book columns:    book_id, title, author, isbn, genre, total_copies
+ * Student columns: student_id, student_name, email, address, phone_number[, max_borrow_limit]
+ */
+public class BulkImporter {
+    private static final Logger LOGGER = Logger.getLogger(BulkImporter.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final int DEFAULT_BORROW_LIMIT = 5;
+
+    private final LibraryStorage storage;
+    private final int chunkSize;
+
+    public BulkImporter(LibraryStorage storage) {
+        this(storage, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkImporter(LibraryStorage storage, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.storage = storage;
+        this.chunkSize = chunkSize;
+    }
+
+    // File entry points - the delimiter is chosen from the file extension
+    public ImportReport importBooks(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importBooks(reader, delimiterFor(file));
+        }
+    }
+
+    public ImportReport importStudents(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importStudents(reader, delimiterFor(file));
+        }
+    }
+
+    public ImportReport importBooks(Reader reader, char delimiter) throws IOException {
+        return run(reader, delimiter, "book_id", this::parseBook, storage::addBooks);
+    }
+
+    public ImportReport importStudents(Reader reader, char delimiter) throws IOException {
+        return run(reader, delimiter, "student_id", this::parseStudent, storage::addStudents);
+    }
+
+    private <T> ImportReport run(Reader source, char delimiter, String headerKey,
+                                 Function<List<String>, T> parser,
+                                 Function<List<T>, boolean[]> sink) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        ImportReport report = new ImportReport();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkLines = new ArrayList<>(chunkSize);
+        long start = System.nanoTime();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = splitLine(line, delimiter);
+            if (lineNumber == 1 && fields.get(0).trim().equalsIgnoreCase(headerKey)) {
+                continue;
+            }
+            report.rowsRead++;
+            try {
+                chunk.add(parser.apply(fields));
+                chunkLines.add(lineNumber);
+            } catch (IllegalArgumentException ex) {
+                report.reject(lineNumber, ex.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                flush(chunk, chunkLines, sink, report);
+            }
+        }
+        flush(chunk, chunkLines, sink, report);
+
+        report.elapsedNanos = System.nanoTime() - start;
+        LOGGER.info("Bulk import finished: " + report.getRowsImported() + " rows imported, "
+                    + report.getRowsRejected() + " rejected, "
+                    + String.format("%.0f", report.getRowsPerSecond()) + " rows/s");
+        return report;
+    }
+
+    private <T> void flush(List<T> chunk, List<Integer> chunkLines, Function<List<T>, boolean[]> sink, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        boolean[] inserted = sink.apply(chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (inserted[i]) {
+                report.rowsImported++;
+            } else {
+                report.reject(chunkLines.get(i), "Rejected by storage (duplicate key or write failure)");
+            }
+        }
+        report.chunksCommitted++;
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private Book parseBook(List<String> fields) {
+        requireColumns(fields, 6);
+        String bookId = required(fields, 0, "book_id");
+        String title = required(fields, 1, "title");
+        String author = required(fields, 2, "author");
+        String isbn = optional(fields, 3);
+        String genre = optional(fields, 4);
+        int totalCopies = parseNonNegative(fields.get(5), "total_copies");
+        return new Book(bookId, title, author, isbn, genre, totalCopies);
+    }
+
+    private Student parseStudent(List<String> fields) {
+        requireColumns(fields, 5);
+        String studentId = required(fields, 0, "student_id");
+        String name = required(fields, 1, "student_name");
+        String email = required(fields, 2, "email");
+        String address = optional(fields, 3);
+        String phone = optional(fields, 4);
+        int limit = fields.size() > 5 && !fields.get(5).isBlank()
+                ? parseNonNegative(fields.get(5), "max_borrow_limit") : DEFAULT_BORROW_LIMIT;
+        return new Student(studentId, name, email, address, phone, limit);
+    }
+
+    private static void requireColumns(List<String> fields, int count) {
+        if (fields.size() < count) {
+            throw new IllegalArgumentException("Expected " + count + " columns but found " + fields.size());
+        }
+    }
+
+    private static String required(List<String> fields, int index, String column) {
+        String value = fields.get(index).trim();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + column);
+        }
+        return value;
+    }
+
+    private static String optional(List<String> fields, int index) {
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static int parseNonNegative(String value, String column) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Negative " + column + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static char delimiterFor(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+    }
+
+    // Splits one line, honouring double-quoted fields with "" escapes
+    static List<String> splitLine(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' && current.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    // Inner class for import results
+    public static class ImportReport {
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsRejected;
+        private long chunksCommitted;
+        private long elapsedNanos;
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        private void reject(int lineNumber, String reason) {
+            rowsRejected++;
+            // Only keep the first rejections so a bad file cannot exhaust memory
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(lineNumber, reason));
+            }
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getRowsImported() { return rowsImported; }
+        public long getRowsRejected() { return rowsRejected; }
+        public long getChunksCommitted() { return chunksCommitted; }
+        public List<Rejection> getRejections() { return rejections; }
+        public double getElapsedSeconds() { return elapsedNanos / 1_000_000_000.0; }
+
+        public double getRowsPerSecond() {
+            double seconds = getElapsedSeconds();
+            return seconds > 0 ? rowsImported / seconds : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Import Report:\n" +
+                               "- Rows Read: %d\n" +
+                               "- Rows Imported: %d\n" +
+                               "- Rows Rejected: %d\n" +
+                               "- Chunks Committed: %d\n" +
+                               "- Elapsed: %.2fs (%.0f rows/s)",
+                               rowsRead, rowsImported, rowsRejected, chunksCommitted,
+                               getElapsedSeconds(), getRowsPerSecond());
+        }
+    }
+
+    public static class Rejection {
+        private final int lineNumber;
+        private final String reason;
+
+        public Rejection(int lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + reason;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CatalogDictionary assigns dense int codes to the values of a low-cardinality
+ * catalog field, so that every Book with the same genre or author shares one
+ * String instance and filters can compare ints instead of strings.
+ *
+ * Codes are never reused or removed; the dictionaries only grow with the
+ * number of distinct values, not with the number of books.
+ *
+ * Values keep their exact spelling, but lookups by findMatching ignore case
+ * and accents, as MySQL's default utf8mb4_0900_ai_ci collation does, so a
+ * filter returns the same books on either storage backend.
+ */
+public final class CatalogDictionary {
+    public static final CatalogDictionary GENRES = new CatalogDictionary();
+    public static final CatalogDictionary AUTHORS = new CatalogDictionary();
+
+    // Code of a null value
+    public static final int NONE = -1;
+
+    private static final int[] NO_CODES = new int[0];
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Codes of all values with the same match key; arrays are replaced, never modified
+    private final ConcurrentHashMap<String, int[]> codesByMatchKey = new ConcurrentHashMap<>();
+    // Written only under the monitor; published through the volatile reference
+    private volatile String[] values = new String[64];
+    private int size;
+
+    private CatalogDictionary() {
+    }
+
+    // Returns the code for the value, assigning the next one if it is new
+    public int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            int newCode = size;
+            codesByMatchKey.merge(CollationKey.of(value), new int[] { newCode }, (existing, added) -> {
+                int[] merged = Arrays.copyOf(existing, existing.length + 1);
+                merged[existing.length] = newCode;
+                return merged;
+            });
+            return size++;
+        }
+    }
+
+    public String decode(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    // Returns the code of a value without assigning one, or NONE if it has never been seen
+    public int find(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NONE;
+    }
+
+    // Codes of every value equal to this one ignoring case and accents; empty if there are none
+    public int[] findMatching(String value) {
+        if (value == null) {
+            return NO_CODES;
+        }
+        return codesByMatchKey.getOrDefault(CollationKey.of(value), NO_CODES);
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * CollationKey maps a string to a key that is equal for two strings exactly
+ * when the case and accent insensitive MySQL collation treats them as equal,
+ * close enough for the library's data: accents are stripped after canonical
+ * decomposition and case is folded. Both the storage's duplicate key checks
+ * and the catalog's genre and author filters compare through it, so the two
+ * backends agree on what counts as the same value.
+ */
+final class CollationKey {
+    private CollationKey() {
+    }
+    
+    static String of(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,331 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ConnectionPool is a small bounded JDBC connection pool used by DatabaseManager.
+ * Connections handed out by acquire() are returned to the pool when closed.
+ *
+ * Validation costs a server round trip, so it is not done on every acquire.
+ * A connection is checked when it has sat idle longer than the validation
+ * idle time, since the server or network may have dropped it meanwhile, and
+ * when it is returned after one of its calls failed at the connection level.
+ */
+public class ConnectionPool {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long validationIdleMillis;
+
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String username, String password, int maxSize, int minIdle,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, int validationTimeoutSeconds,
+                          long validationIdleMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.validationIdleMillis = validationIdleMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting at most the acquire timeout.
+     * Closing the returned connection hands it back to the pool.
+     */
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", ex);
+        }
+
+        try {
+            Connection physical = takeValidIdleConnection();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, username, password);
+                createdCount.incrementAndGet();
+            }
+            acquireCount.incrementAndGet();
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private Connection takeValidIdleConnection() {
+        while (true) {
+            IdleConnection idle;
+            synchronized (idleConnections) {
+                idle = idleConnections.pollFirst();
+            }
+            if (idle == null) {
+                return null;
+            }
+            // Recently used connections are trusted; a failure on them is caught on release
+            if (System.currentTimeMillis() - idle.lastUsed < validationIdleMillis || isValid(idle.connection)) {
+                return idle.connection;
+            }
+            validationFailureCount.incrementAndGet();
+            destroy(idle.connection);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void release(Connection physical, boolean failed) {
+        try {
+            boolean reusable = !closed && !physical.isClosed();
+            if (reusable && failed && !isValid(physical)) {
+                validationFailureCount.incrementAndGet();
+                reusable = false;
+            }
+            if (reusable && !physical.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                synchronized (idleConnections) {
+                    idleConnections.addFirst(new IdleConnection(physical, System.currentTimeMillis()));
+                }
+            } else {
+                destroy(physical);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Discarding connection that failed to reset", ex);
+            destroy(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(Connection physical) {
+        try {
+            physical.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Failed to close pooled connection", ex);
+        }
+        destroyedCount.incrementAndGet();
+    }
+
+    /**
+     * Closes connections that have been idle longer than the idle timeout,
+     * keeping at least minIdle connections around.
+     */
+    public void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Deque<IdleConnection> expired = new ArrayDeque<>();
+        synchronized (idleConnections) {
+            // Oldest connections sit at the tail since releases push to the head
+            while (idleConnections.size() > minIdle && idleConnections.peekLast().lastUsed < cutoff) {
+                expired.add(idleConnections.pollLast());
+            }
+        }
+        for (IdleConnection idle : expired) {
+            destroy(idle.connection);
+            evictedCount.incrementAndGet();
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released;
+            // Set when a call failed at the connection level, so the connection is checked before reuse
+            private boolean failed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    if (!released) {
+                        released = true;
+                        release(physical, failed);
+                    }
+                    return null;
+                }
+                if (name.equals("isClosed")) {
+                    return released || physical.isClosed();
+                }
+                if (released) {
+                    throw new SQLException("Connection has already been returned to the pool");
+                }
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException ex) {
+                    if (ex.getCause() instanceof SQLException && isConnectionFailure((SQLException) ex.getCause())) {
+                        failed = true;
+                    }
+                    throw ex.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    // SQLState class 08 means the connection itself broke; errors such as a duplicate key leave it usable
+    private static boolean isConnectionFailure(SQLException ex) {
+        String state = ex.getSQLState();
+        return ex instanceof SQLNonTransientConnectionException || ex instanceof SQLRecoverableException
+            || (state != null && state.startsWith("08"));
+    }
+
+    public PoolMetrics getMetrics() {
+        int idle;
+        synchronized (idleConnections) {
+            idle = idleConnections.size();
+        }
+        int active = maxSize - permits.availablePermits();
+        long acquired = acquireCount.get();
+        double avgWaitMillis = acquired == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / acquired;
+        return new PoolMetrics(maxSize, active, idle, permits.getQueueLength(), acquired,
+                               createdCount.get(), destroyedCount.get(), evictedCount.get(),
+                               timeoutCount.get(), validationFailureCount.get(), avgWaitMillis);
+    }
+
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        synchronized (idleConnections) {
+            for (IdleConnection idle : idleConnections) {
+                destroy(idle.connection);
+            }
+            idleConnections.clear();
+        }
+        LOGGER.info("Connection pool closed");
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long lastUsed;
+
+        IdleConnection(Connection connection, long lastUsed) {
+            this.connection = connection;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    // Inner class for pool metrics
+    public static class PoolMetrics {
+        private final int maxSize;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int waitingThreads;
+        private final long acquireCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long evictedCount;
+        private final long timeoutCount;
+        private final long validationFailureCount;
+        private final double averageWaitMillis;
+
+        public PoolMetrics(int maxSize, int activeConnections, int idleConnections, int waitingThreads,
+                           long acquireCount, long createdCount, long destroyedCount, long evictedCount,
+                           long timeoutCount, long validationFailureCount, double averageWaitMillis) {
+            this.maxSize = maxSize;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.waitingThreads = waitingThreads;
+            this.acquireCount = acquireCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.evictedCount = evictedCount;
+            this.timeoutCount = timeoutCount;
+            this.validationFailureCount = validationFailureCount;
+            this.averageWaitMillis = averageWaitMillis;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getAcquireCount() { return acquireCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getEvictedCount() { return evictedCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getValidationFailureCount() { return validationFailureCount; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("Pool Metrics:\n" +
+                               "- Active/Idle/Max: %d/%d/%d\n" +
+                               "- Waiting Threads: %d\n" +
+                               "- Acquired: %d (avg wait %.2fms)\n" +
+                               "- Created/Destroyed/Evicted: %d/%d/%d\n" +
+                               "- Timeouts: %d\n" +
+                               "- Validation Failures: %d",
+                               activeConnections, idleConnections, maxSize, waitingThreads,
+                               acquireCount, averageWaitMillis, createdCount, destroyedCount, evictedCount,
+                               timeoutCount, validationFailureCount);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Checks ConnectionPool against a stub JDBC driver registered with
+ * DriverManager, so no database is needed. Run with: java ConnectionPoolTest
+ */
+public class ConnectionPoolTest {
+    private static final String URL = "jdbc:stub:pool";
+    private static final StubDriver DRIVER = new StubDriver();
+
+    public static void main(String[] args) throws Exception {
+        DriverManager.registerDriver(DRIVER);
+        acquireTimesOutWithMaxSizeConnectionsOut();
+        evictsIdleConnectionsAboveMinIdle();
+        revalidatesConnectionAfterConnectionFailure();
+        rollsBackHalfFinishedTransactionOnRelease();
+        metricsCountAcquiresAndCreations();
+        System.out.println("ConnectionPoolTest passed");
+    }
+
+    private static ConnectionPool newPool(int maxSize, int minIdle, long idleTimeoutMillis) {
+        DRIVER.connections.clear();
+        return new ConnectionPool(URL, "user", "", maxSize, minIdle, 100, idleTimeoutMillis, 1, 60_000);
+    }
+
+    private static void acquireTimesOutWithMaxSizeConnectionsOut() throws SQLException {
+        ConnectionPool pool = newPool(2, 0, 60_000);
+        Connection first = pool.acquire();
+        Connection second = pool.acquire();
+        try {
+            pool.acquire();
+            throw new AssertionError("acquire must time out with maxSize connections out");
+        } catch (SQLException expected) {
+            check(expected.getMessage().contains("Timed out"), "unexpected error: " + expected.getMessage());
+        }
+        check(pool.getMetrics().getTimeoutCount() == 1, "timeout not counted");
+
+        first.close();
+        pool.acquire().close();
+        second.close();
+        pool.close();
+    }
+
+    private static void evictsIdleConnectionsAboveMinIdle() throws Exception {
+        ConnectionPool pool = newPool(3, 1, 1);
+        Connection a = pool.acquire();
+        Connection b = pool.acquire();
+        Connection c = pool.acquire();
+        a.close();
+        b.close();
+        c.close();
+        Thread.sleep(20);
+        pool.evictIdleConnections();
+
+        ConnectionPool.PoolMetrics metrics = pool.getMetrics();
+        check(metrics.getIdleConnections() == 1, "expected minIdle connections to stay, got " + metrics.getIdleConnections());
+        check(metrics.getEvictedCount() == 2, "expected 2 evictions, got " + metrics.getEvictedCount());
+        check(DRIVER.closedCount() == 2, "evicted connections must be closed");
+        pool.close();
+    }
+
+    // Only connection-level errors cost a validation; a duplicate key does not
+    private static void revalidatesConnectionAfterConnectionFailure() throws SQLException {
+        ConnectionPool pool = newPool(1, 0, 60_000);
+        Connection conn = pool.acquire();
+        StubConnection stub = DRIVER.connections.get(0);
+        stub.nextError = new SQLException("Duplicate entry", "23000");
+        try {
+            conn.createStatement();
+        } catch (SQLException expected) {
+        }
+        conn.close();
+        check(stub.validations == 0, "a duplicate key must not trigger validation");
+
+        conn = pool.acquire();
+        stub.nextError = new SQLException("Communications link failure", "08S01");
+        stub.valid = false;
+        try {
+            conn.createStatement();
+        } catch (SQLException expected) {
+        }
+        conn.close();
+        check(stub.validations == 1, "a connection failure must trigger validation");
+        check(stub.closed, "a connection that fails validation must be closed");
+        check(pool.getMetrics().getValidationFailureCount() == 1, "validation failure not counted");
+
+        pool.acquire().close();
+        check(DRIVER.connections.size() == 2, "a new connection must replace the broken one");
+        pool.close();
+    }
+
+    private static void rollsBackHalfFinishedTransactionOnRelease() throws SQLException {
+        ConnectionPool pool = newPool(1, 0, 60_000);
+        Connection conn = pool.acquire();
+        conn.setAutoCommit(false);
+        conn.close();
+        StubConnection stub = DRIVER.connections.get(0);
+        check(stub.rollbacks == 1, "open transaction must be rolled back on release");
+        check(stub.autoCommit, "auto-commit must be restored on release");
+
+        conn = pool.acquire();
+        check(conn.getAutoCommit(), "reused connection must start in auto-commit mode");
+        conn.close();
+        check(DRIVER.connections.size() == 1, "the rolled back connection must be reused");
+        pool.close();
+    }
+
+    private static void metricsCountAcquiresAndCreations() throws SQLException {
+        ConnectionPool pool = newPool(2, 0, 60_000);
+        Connection first = pool.acquire();
+        Connection second = pool.acquire();
+        ConnectionPool.PoolMetrics metrics = pool.getMetrics();
+        check(metrics.getActiveConnections() == 2, "expected 2 active, got " + metrics.getActiveConnections());
+        check(metrics.getIdleConnections() == 0, "expected 0 idle, got " + metrics.getIdleConnections());
+
+        first.close();
+        second.close();
+        pool.acquire().close();
+        metrics = pool.getMetrics();
+        check(metrics.getAcquireCount() == 3, "expected 3 acquires, got " + metrics.getAcquireCount());
+        check(metrics.getCreatedCount() == 2, "expected 2 created, got " + metrics.getCreatedCount());
+        check(metrics.getActiveConnections() == 0, "expected 0 active, got " + metrics.getActiveConnections());
+        check(metrics.getIdleConnections() == 2, "expected 2 idle, got " + metrics.getIdleConnections());
+        check(metrics.getDestroyedCount() == 0, "expected nothing destroyed, got " + metrics.getDestroyedCount());
+        pool.close();
+        check(pool.getMetrics().getDestroyedCount() == 2, "close must destroy idle connections");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    // Hands out StubConnections for jdbc:stub: URLs
+    private static class StubDriver implements Driver {
+        private final List<StubConnection> connections = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            StubConnection stub = new StubConnection();
+            connections.add(stub);
+            return stub.proxy();
+        }
+
+        int closedCount() {
+            int closed = 0;
+            for (StubConnection stub : connections) {
+                if (stub.closed) {
+                    closed++;
+                }
+            }
+            return closed;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:stub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    // Records what the pool does to a connection; nextError makes the next other call fail
+    private static class StubConnection {
+        private volatile boolean valid = true;
+        private volatile boolean closed;
+        private volatile boolean autoCommit = true;
+        private volatile int validations;
+        private volatile int rollbacks;
+        private volatile SQLException nextError;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isValid":
+                            validations++;
+                            return valid && !closed;
+                        case "isClosed":
+                            return closed;
+                        case "close":
+                            closed = true;
+                            return null;
+                        case "getAutoCommit":
+                            return autoCommit;
+                        case "setAutoCommit":
+                            autoCommit = (Boolean) args[0];
+                            return null;
+                        case "rollback":
+                            rollbacks++;
+                            return null;
+                        default:
+                            SQLException error = nextError;
+                            if (error != null) {
+                                nextError = null;
+                                throw error;
+                            }
+                            return null;
+                    }
+                });
+        }
+    }
+}
\ No newline at end of file
@@ -1,19 +1,57 @@
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * DatabaseManager handles all database operations for the library management system
  */
-public class DatabaseManager {
-    private static final String DB_URL = "jdbc:mysql://localhost/librarydb";
+public class DatabaseManager implements LibraryStorage {
+    private static final String DB_URL = "jdbc:mysql://localhost/librarydb?rewriteBatchedStatements=true";
     private static final String DB_USERNAME = "root";
     private static final String DB_PASSWORD = "";
     
-    private Connection connection;
+    // Connection pool settings
+    private static final int POOL_MAX_SIZE = 10;
+    private static final int POOL_MIN_IDLE = 2;
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = 5000;
+    private static final long POOL_IDLE_TIMEOUT_MS = 300000; // 5 minutes
+    private static final int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long POOL_VALIDATION_IDLE_MS = 30000; // validate connections idle longer than 30 seconds
+    private static final int STREAM_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final int SEARCH_FETCH_CHUNK = 500;
+    
+    // Entity cache settings
+    private static final int BOOK_CACHE_SIZE = 10000;
+    private static final int STUDENT_CACHE_SIZE = 10000;
+    private static final long CACHE_TTL_MS = 60000; // 1 minute
+    
+    private ConnectionPool pool;
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+    // Built and kept current together with the search index
+    private final TypeaheadIndex typeahead = new TypeaheadIndex();
+    private volatile boolean searchIndexLoaded;
+    private final EntityCache<Book> bookCache = new EntityCache<>(BOOK_CACHE_SIZE, CACHE_TTL_MS, Book::new);
+    private final EntityCache<Student> studentCache = new EntityCache<>(STUDENT_CACHE_SIZE, CACHE_TTL_MS, Student::new);
     private static final Logger LOGGER = Logger.getLogger(DatabaseManager.class.getName());
     
     // Singleton pattern
@@ -21,14 +59,14 @@ public class DatabaseManager {
     
     private DatabaseManager() {
         connect();
-        if (connection != null) {
+        if (pool != null) {
             createTablesIfNotExists();
         } else {
             LOGGER.warning("Database connection failed. Please install MySQL server and run database_setup.sql");
         }
     }
     
-    public static DatabaseManager getInstance() {
+    public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
             instance = new DatabaseManager();
         }
@@ -39,20 +77,41 @@ public class DatabaseManager {
     private void connect() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver"); // Updated driver
-            connection = DriverManager.getConnection(DB_URL, DB_USERNAME, DB_PASSWORD);
-            LOGGER.info("Database connection established successfully");
+            pool = new ConnectionPool(DB_URL, DB_USERNAME, DB_PASSWORD, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                                      POOL_ACQUIRE_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_VALIDATION_TIMEOUT_SECONDS,
+                                      POOL_VALIDATION_IDLE_MS);
+            // Open the first connection eagerly so a bad configuration is reported at startup
+            Connection conn = pool.acquire();
+            try {
+                LOGGER.info("Database connection established successfully to " + conn.getMetaData().getURL());
+            } finally {
+                conn.close();
+            }
         } catch (ClassNotFoundException ex) {
             LOGGER.log(Level.SEVERE, "MySQL JDBC driver not found. Please download mysql-connector-j and place in lib/ folder", ex);
-            connection = null;
+            pool = null;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to connect to MySQL database. Please install MySQL server and create database 'librarydb'", ex);
-            connection = null;
+            pool.close();
+            pool = null;
         }
     }
     
+    public ConnectionPool.PoolMetrics getPoolMetrics() {
+        return pool != null ? pool.getMetrics() : null;
+    }
+    
+    public EntityCache.CacheStatistics getBookCacheStatistics() {
+        return bookCache.getStatistics();
+    }
+    
+    public EntityCache.CacheStatistics getStudentCacheStatistics() {
+        return studentCache.getStatistics();
+    }
+    
     // Create tables if they don't exist
     private void createTablesIfNotExists() {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot create tables - no database connection");
             return;
         }
@@ -67,7 +126,8 @@ public class DatabaseManager {
                     phone_number VARCHAR(20),
                     max_borrow_limit INT DEFAULT 5,
                     current_borrow_count INT DEFAULT 0,
-                    created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_students_name (student_name, student_id)
                 )
                 """;
             
@@ -81,7 +141,9 @@ public class DatabaseManager {
                     genre VARCHAR(50),
                     total_copies INT DEFAULT 1,
                     available_copies INT DEFAULT 1,
-                    created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_books_title (title, book_id),
+                    INDEX idx_books_genre (genre)
                 )
                 """;
             
@@ -97,16 +159,41 @@ public class DatabaseManager {
                     is_returned BOOLEAN DEFAULT FALSE,
                     fine_amount DECIMAL(10,2) DEFAULT 0.00,
                     created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_borrow_records_active_due (is_returned, due_date),
+                    FOREIGN KEY (student_id) REFERENCES students(student_id),
+                    FOREIGN KEY (book_id) REFERENCES books(book_id)
+                )
+                """;
+            
+            // Create holds table; finished holds stay as history
+            String createHoldsTable = """
+                CREATE TABLE IF NOT EXISTS holds (
+                    hold_id VARCHAR(50) PRIMARY KEY,
+                    student_id VARCHAR(50) NOT NULL,
+                    book_id VARCHAR(50) NOT NULL,
+                    placed_at DATETIME(6) NOT NULL,
+                    status VARCHAR(10) NOT NULL,
+                    ready_until DATE,
+                    INDEX idx_holds_queue (book_id, status, placed_at),
+                    INDEX idx_holds_student (student_id, book_id, status),
+                    INDEX idx_holds_ready (status, ready_until),
                     FOREIGN KEY (student_id) REFERENCES students(student_id),
                     FOREIGN KEY (book_id) REFERENCES books(book_id)
                 )
                 """;
             
-            Statement stmt = connection.createStatement();
-            stmt.execute(createStudentsTable);
-            stmt.execute(createBooksTable);
-            stmt.execute(createBorrowRecordsTable);
-            stmt.close();
+            try (Connection conn = pool.acquire();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(createStudentsTable);
+                stmt.execute(createBooksTable);
+                stmt.execute(createBorrowRecordsTable);
+                stmt.execute(createHoldsTable);
+                // Tables created before the index existed do not get it from CREATE TABLE IF NOT EXISTS
+                ensureIndex(conn, "students", "idx_students_name", "student_name, student_id");
+                ensureIndex(conn, "books", "idx_books_title", "title, book_id");
+                ensureIndex(conn, "books", "idx_books_genre", "genre");
+                ensureIndex(conn, "borrow_records", "idx_borrow_records_active_due", "is_returned, due_date");
+            }
             
             LOGGER.info("Database tables created/verified successfully");
         } catch (SQLException ex) {
@@ -114,14 +201,33 @@ public class DatabaseManager {
         }
     }
     
+    // Adds the index unless the table already has one by that name
+    private void ensureIndex(Connection conn, String table, String indexName, String columns) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?";
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, table);
+            pst.setString(2, indexName);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + indexName + " ON " + table + "(" + columns + ")");
+            LOGGER.info("Created index " + indexName + " on " + table);
+        }
+    }
+    
     // Student operations
     public boolean addStudent(Student student) {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot add student - no database connection");
             return false;
         }
         String sql = "INSERT INTO students (student_id, student_name, email, address, phone_number, max_borrow_limit) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, student.getStudentId());
             pst.setString(2, student.getStudentName());
             pst.setString(3, student.getEmail());
@@ -138,12 +244,13 @@ public class DatabaseManager {
     }
     
     public boolean updateStudent(Student student) {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot update student - no database connection");
             return false;
         }
         String sql = "UPDATE students SET student_name=?, email=?, address=?, phone_number=?, max_borrow_limit=? WHERE student_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, student.getStudentName());
             pst.setString(2, student.getEmail());
             pst.setString(3, student.getAddress());
@@ -152,6 +259,7 @@ public class DatabaseManager {
             pst.setString(6, student.getStudentId());
             
             int result = pst.executeUpdate();
+            studentCache.invalidate(student.getStudentId());
             return result > 0;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to update student", ex);
@@ -160,14 +268,16 @@ public class DatabaseManager {
     }
     
     public boolean deleteStudent(String studentId) {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot delete student - no database connection");
             return false;
         }
         String sql = "DELETE FROM students WHERE student_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, studentId);
             int result = pst.executeUpdate();
+            studentCache.invalidate(studentId);
             return result > 0;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to delete student", ex);
@@ -176,12 +286,17 @@ public class DatabaseManager {
     }
     
     public Student getStudent(String studentId) {
-        if (connection == null) {
+        return studentCache.get(studentId, this::loadStudent);
+    }
+    
+    private Student loadStudent(String studentId) {
+        if (pool == null) {
             LOGGER.warning("Cannot get student - no database connection");
             return null;
         }
         String sql = "SELECT * FROM students WHERE student_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, studentId);
             ResultSet rs = pst.executeQuery();
             
@@ -205,13 +320,14 @@ public class DatabaseManager {
     
     public List<Student> getAllStudents() {
         List<Student> students = new ArrayList<>();
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot get students - no database connection");
             return students;
         }
         String sql = "SELECT * FROM students ORDER BY student_name";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
@@ -234,12 +350,13 @@ public class DatabaseManager {
     
     // Book operations
     public boolean addBook(Book book) {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot add book - no database connection");
             return false;
         }
         String sql = "INSERT INTO books (book_id, title, author, isbn, genre, total_copies, available_copies) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, book.getBookId());
             pst.setString(2, book.getTitle());
             pst.setString(3, book.getAuthor());
@@ -249,6 +366,10 @@ public class DatabaseManager {
             pst.setInt(7, book.getAvailableCopies());
             
             int result = pst.executeUpdate();
+            if (result > 0) {
+                searchIndex.index(book);
+                typeahead.index(book);
+            }
             return result > 0;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to add book", ex);
@@ -257,8 +378,13 @@ public class DatabaseManager {
     }
     
     public boolean updateBook(Book book) {
+        if (pool == null) {
+            LOGGER.warning("Cannot update book - no database connection");
+            return false;
+        }
         String sql = "UPDATE books SET title=?, author=?, isbn=?, genre=?, total_copies=?, available_copies=? WHERE book_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, book.getTitle());
             pst.setString(2, book.getAuthor());
             pst.setString(3, book.getIsbn());
@@ -268,6 +394,11 @@ public class DatabaseManager {
             pst.setString(7, book.getBookId());
             
             int result = pst.executeUpdate();
+            bookCache.invalidate(book.getBookId());
+            if (result > 0) {
+                searchIndex.index(book);
+                typeahead.index(book);
+            }
             return result > 0;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to update book", ex);
@@ -276,10 +407,20 @@ public class DatabaseManager {
     }
     
     public boolean deleteBook(String bookId) {
+        if (pool == null) {
+            LOGGER.warning("Cannot delete book - no database connection");
+            return false;
+        }
         String sql = "DELETE FROM books WHERE book_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, bookId);
             int result = pst.executeUpdate();
+            bookCache.invalidate(bookId);
+            if (result > 0) {
+                searchIndex.remove(bookId);
+                typeahead.remove(bookId);
+            }
             return result > 0;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to delete book", ex);
@@ -288,12 +429,17 @@ public class DatabaseManager {
     }
     
     public Book getBook(String bookId) {
-        if (connection == null) {
+        return bookCache.get(bookId, this::loadBook);
+    }
+    
+    private Book loadBook(String bookId) {
+        if (pool == null) {
             LOGGER.warning("Cannot get book - no database connection");
             return null;
         }
         String sql = "SELECT * FROM books WHERE book_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, bookId);
             ResultSet rs = pst.executeQuery();
             
@@ -317,13 +463,14 @@ public class DatabaseManager {
     
     public List<Book> getAllBooks() {
         List<Book> books = new ArrayList<>();
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot get books - no database connection");
             return books;
         }
         String sql = "SELECT * FROM books ORDER BY title";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
@@ -344,43 +491,161 @@ public class DatabaseManager {
         return books;
     }
     
+    /**
+     * Searches title, author and ISBN through the in-process inverted index
+     * (the leading-wildcard LIKE it replaces could not use any index), then
+     * loads the matching rows by primary key in ranked order.
+     */
     public List<Book> searchBooks(String keyword) {
         List<Book> books = new ArrayList<>();
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot search books - no database connection");
             return books;
         }
-        String sql = "SELECT * FROM books WHERE title LIKE ? OR author LIKE ? OR isbn LIKE ? ORDER BY title";
+        ensureSearchIndexLoaded();
+        List<String> rankedIds = searchIndex.search(keyword);
+        if (rankedIds.isEmpty()) {
+            return books;
+        }
         
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
-            String searchPattern = "%" + keyword + "%";
-            pst.setString(1, searchPattern);
-            pst.setString(2, searchPattern);
-            pst.setString(3, searchPattern);
-            
-            ResultSet rs = pst.executeQuery();
-            while (rs.next()) {
-                Book book = new Book(
-                    rs.getString("book_id"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    rs.getString("isbn"),
-                    rs.getString("genre"),
-                    rs.getInt("total_copies")
-                );
-                book.setAvailableCopies(rs.getInt("available_copies"));
-                books.add(book);
+        Map<String, Book> byId = new HashMap<>();
+        try (Connection conn = pool.acquire()) {
+            for (int from = 0; from < rankedIds.size(); from += SEARCH_FETCH_CHUNK) {
+                List<String> chunk = rankedIds.subList(from, Math.min(from + SEARCH_FETCH_CHUNK, rankedIds.size()));
+                String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement pst = conn.prepareStatement("SELECT * FROM books WHERE book_id IN (" + placeholders + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pst.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pst.executeQuery()) {
+                        while (rs.next()) {
+                            Book book = mapBook(rs);
+                            byId.put(book.getBookId(), book);
+                        }
+                    }
+                }
             }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to search books", ex);
+            return books;
+        }
+        
+        for (String bookId : rankedIds) {
+            Book book = byId.get(bookId);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+    
+    public List<Book> getBooksByGenre(String genre) {
+        return getBooksByColumn("genre", genre);
+    }
+    
+    public List<Book> getBooksByAuthor(String author) {
+        return getBooksByColumn("author", author);
+    }
+    
+    // column is one of our own constants, never user input
+    private List<Book> getBooksByColumn(String column, String value) {
+        List<Book> books = new ArrayList<>();
+        if (pool == null) {
+            LOGGER.warning("Cannot filter books - no database connection");
+            return books;
+        }
+        String sql = "SELECT * FROM books WHERE " + column + "=? ORDER BY title";
+        
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, value);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    books.add(mapBook(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to filter books by " + column, ex);
         }
         return books;
     }
     
+    // Builds the search index from the books table on first use
+    private void ensureSearchIndexLoaded() {
+        if (searchIndexLoaded) {
+            return;
+        }
+        synchronized (searchIndex) {
+            if (!searchIndexLoaded) {
+                rebuildSearchIndex();
+            }
+        }
+    }
+    
+    /**
+     * Rebuilds the search index from the books table. Only needed when rows
+     * are changed outside this DatabaseManager, e.g. by another process.
+     */
+    public void rebuildSearchIndex() {
+        synchronized (searchIndex) {
+            searchIndex.clear();
+            typeahead.clear();
+            try (Stream<Book> books = streamAllBooks()) {
+                books.forEach(book -> {
+                    searchIndex.index(book);
+                    typeahead.index(book);
+                });
+            }
+            loadLoanCounts();
+            searchIndexLoaded = true;
+            LOGGER.info("Search index built with " + searchIndex.size() + " books and "
+                    + typeahead.size() + " suggestions");
+        }
+    }
+    
+    // Ranks suggestions by each book's loans, counted in the database in one pass
+    private void loadLoanCounts() {
+        String sql = "SELECT book_id, COUNT(*) AS loans FROM borrow_records GROUP BY book_id";
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            while (rs.next()) {
+                typeahead.addLoans(rs.getString("book_id"), rs.getLong("loans"));
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Failed to load loan counts for autocomplete", ex);
+        }
+    }
+    
+    /**
+     * Returns up to limit titles and author names with a word starting with
+     * the prefix, most borrowed first. Answered from memory without a query.
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        if (pool == null) {
+            LOGGER.warning("Cannot autocomplete - no database connection");
+            return new ArrayList<>();
+        }
+        ensureSearchIndexLoaded();
+        return typeahead.complete(prefix, limit);
+    }
+    
+    // Counts a new loan towards autocomplete ranking once the index has been built
+    private void countLoan(String bookId) {
+        if (searchIndexLoaded) {
+            typeahead.addLoans(bookId, 1);
+        }
+    }
+    
     // Borrow record operations
     public boolean addBorrowRecord(BorrowRecord record) {
+        if (pool == null) {
+            LOGGER.warning("Cannot add borrow record - no database connection");
+            return false;
+        }
         String sql = "INSERT INTO borrow_records (record_id, student_id, book_id, borrow_date, due_date, is_returned, fine_amount) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, record.getRecordId());
             pst.setString(2, record.getStudentId());
             pst.setString(3, record.getBookId());
@@ -390,6 +655,9 @@ public class DatabaseManager {
             pst.setDouble(7, record.getFineAmount());
             
             int result = pst.executeUpdate();
+            if (result > 0) {
+                countLoan(record.getBookId());
+            }
             return result > 0;
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to add borrow record", ex);
@@ -398,8 +666,13 @@ public class DatabaseManager {
     }
     
     public boolean updateBorrowRecord(BorrowRecord record) {
+        if (pool == null) {
+            LOGGER.warning("Cannot update borrow record - no database connection");
+            return false;
+        }
         String sql = "UPDATE borrow_records SET return_date=?, is_returned=?, fine_amount=? WHERE record_id=?";
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setDate(1, record.getReturnDate() != null ? Date.valueOf(record.getReturnDate()) : null);
             pst.setBoolean(2, record.isReturned());
             pst.setDouble(3, record.getFineAmount());
@@ -415,13 +688,14 @@ public class DatabaseManager {
     
     public List<BorrowRecord> getBorrowRecordsByStudent(String studentId) {
         List<BorrowRecord> records = new ArrayList<>();
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot get borrow records - no database connection");
             return records;
         }
         String sql = "SELECT * FROM borrow_records WHERE student_id=? ORDER BY borrow_date DESC";
         
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
             pst.setString(1, studentId);
             ResultSet rs = pst.executeQuery();
             
@@ -447,19 +721,892 @@ public class DatabaseManager {
         return records;
     }
     
+    public List<BorrowRecord> getBorrowRecordsByBook(String bookId) {
+        List<BorrowRecord> records = new ArrayList<>();
+        if (pool == null) {
+            LOGGER.warning("Cannot get borrow records - no database connection");
+            return records;
+        }
+        String sql = "SELECT * FROM borrow_records WHERE book_id=? ORDER BY borrow_date DESC";
+        
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, bookId);
+            ResultSet rs = pst.executeQuery();
+            
+            while (rs.next()) {
+                records.add(mapBorrowRecord(rs));
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to get borrow records for book", ex);
+        }
+        return records;
+    }
+    
     public List<BorrowRecord> getOverdueRecords() {
         List<BorrowRecord> records = new ArrayList<>();
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot get overdue records - no database connection");
             return records;
         }
+        // Range scan on idx_borrow_records_active_due
         String sql = "SELECT * FROM borrow_records WHERE is_returned=FALSE AND due_date < CURDATE() ORDER BY due_date";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
-                BorrowRecord record = new BorrowRecord(
+                records.add(mapBorrowRecord(rs));
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to get overdue records", ex);
+        }
+        return records;
+    }
+    
+    public List<BorrowRecord> getRecordsDueWithin(int days) {
+        List<BorrowRecord> records = new ArrayList<>();
+        if (pool == null) {
+            LOGGER.warning("Cannot get due records - no database connection");
+            return records;
+        }
+        String sql = "SELECT * FROM borrow_records WHERE is_returned=FALSE AND due_date BETWEEN CURDATE() AND CURDATE() + INTERVAL ? DAY ORDER BY due_date";
+        
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setInt(1, Math.max(days, 0));
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    records.add(mapBorrowRecord(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to get records due soon", ex);
+        }
+        return records;
+    }
+    
+    // Streaming operations
+    /*
+     * The stream* methods hold a pooled connection and an open ResultSet until
+     * the returned Stream is closed, so callers must use try-with-resources.
+     * Rows are pulled from the server as the stream is consumed, keeping memory
+     * constant for arbitrarily large tables.
+     */
+    public Stream<Book> streamAllBooks() {
+        return streamQuery("SELECT * FROM books ORDER BY title", pst -> { }, DatabaseManager::mapBook);
+    }
+    
+    public Stream<Book> streamAvailableBooks() {
+        return streamQuery("SELECT * FROM books WHERE available_copies > 0 ORDER BY title", pst -> { }, DatabaseManager::mapBook);
+    }
+    
+    public Stream<Student> streamAllStudents() {
+        return streamQuery("SELECT * FROM students ORDER BY student_name", pst -> { }, DatabaseManager::mapStudent);
+    }
+    
+    public Stream<BorrowRecord> streamBorrowRecordsByStudent(String studentId) {
+        return streamQuery("SELECT * FROM borrow_records WHERE student_id=? ORDER BY borrow_date DESC",
+                           pst -> pst.setString(1, studentId), DatabaseManager::mapBorrowRecord);
+    }
+    
+    public Stream<BorrowRecord> streamActiveBorrowRecordsByStudent(String studentId) {
+        return streamQuery("SELECT * FROM borrow_records WHERE student_id=? AND is_returned=FALSE ORDER BY borrow_date DESC",
+                           pst -> pst.setString(1, studentId), DatabaseManager::mapBorrowRecord);
+    }
+    
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement pst) throws SQLException;
+    }
+    
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+    
+    private <T> Stream<T> streamQuery(String sql, StatementBinder binder, RowMapper<T> mapper) {
+        if (pool == null) {
+            LOGGER.warning("Cannot stream query - no database connection");
+            return Stream.empty();
+        }
+        Connection conn = null;
+        PreparedStatement pst = null;
+        ResultSet rs = null;
+        try {
+            conn = pool.acquire();
+            pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J streams rows one at a time instead of buffering the result when fetch size is MIN_VALUE
+            pst.setFetchSize(STREAM_FETCH_SIZE);
+            binder.bind(pst);
+            rs = pst.executeQuery();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to open streaming query", ex);
+            closeQuietly(rs, pst, conn);
+            return Stream.empty();
+        }
+        
+        final Connection openConnection = conn;
+        final PreparedStatement openStatement = pst;
+        final ResultSet cursor = rs;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(cursor));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new IllegalStateException("Failed to read streamed row", ex);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> closeQuietly(cursor, openStatement, openConnection));
+    }
+    
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception ex) {
+                LOGGER.log(Level.FINE, "Failed to close streaming resource", ex);
+            }
+        }
+    }
+    
+    private static Book mapBook(ResultSet rs) throws SQLException {
+        Book book = new Book(
+            rs.getString("book_id"),
+            rs.getString("title"),
+            rs.getString("author"),
+            rs.getString("isbn"),
+            rs.getString("genre"),
+            rs.getInt("total_copies")
+        );
+        book.setAvailableCopies(rs.getInt("available_copies"));
+        return book;
+    }
+    
+    private static Student mapStudent(ResultSet rs) throws SQLException {
+        Student student = new Student(
+            rs.getString("student_id"),
+            rs.getString("student_name"),
+            rs.getString("email"),
+            rs.getString("address"),
+            rs.getString("phone_number"),
+            rs.getInt("max_borrow_limit")
+        );
+        student.setCurrentBorrowCount(rs.getInt("current_borrow_count"));
+        return student;
+    }
+    
+    private static BorrowRecord mapBorrowRecord(ResultSet rs) throws SQLException {
+        Date returnDate = rs.getDate("return_date");
+        return new BorrowRecord(
+            rs.getString("record_id"),
+            rs.getString("student_id"),
+            rs.getString("book_id"),
+            rs.getDate("borrow_date").toLocalDate(),
+            rs.getDate("due_date").toLocalDate(),
+            returnDate != null ? returnDate.toLocalDate() : null,
+            rs.getBoolean("is_returned"),
+            rs.getDouble("fine_amount")
+        );
+    }
+    
+    // Keyset pagination
+    /*
+     * Pages seek past the (sort value, id) of the previous page's last row
+     * instead of using OFFSET, so the cost of a page does not grow with depth.
+     * The id tie-breaker keeps the order total when titles or names repeat;
+     * InnoDB secondary indexes carry the primary key, so idx_books_title and
+     * idx_students_name serve the whole ORDER BY.
+     */
+    public Page<Book> getBooksPage(String pageToken, int pageSize) {
+        return keysetPage("books", "title", "book_id", pageToken, pageSize, DatabaseManager::mapBook,
+                          book -> Page.encodeToken(book.getTitle(), book.getBookId()));
+    }
+    
+    public Page<Student> getStudentsPage(String pageToken, int pageSize) {
+        return keysetPage("students", "student_name", "student_id", pageToken, pageSize, DatabaseManager::mapStudent,
+                          student -> Page.encodeToken(student.getStudentName(), student.getStudentId()));
+    }
+    
+    private <T> Page<T> keysetPage(String table, String sortColumn, String idColumn, String pageToken, int pageSize,
+                                   RowMapper<T> mapper, Function<T, String> tokenOf) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        String[] after = Page.decodeToken(pageToken);
+        List<T> items = new ArrayList<>(pageSize + 1);
+        if (pool == null) {
+            LOGGER.warning("Cannot page " + table + " - no database connection");
+            return new Page<>(items, null);
+        }
+        String sql = "SELECT * FROM " + table
+                   + (after != null ? " WHERE " + sortColumn + " > ? OR (" + sortColumn + " = ? AND " + idColumn + " > ?)" : "")
+                   + " ORDER BY " + sortColumn + ", " + idColumn + " LIMIT ?";
+        
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                pst.setString(index++, after[0]);
+                pst.setString(index++, after[0]);
+                pst.setString(index++, after[1]);
+            }
+            // Fetch one extra row to learn whether another page follows
+            pst.setInt(index, pageSize + 1);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to page " + table, ex);
+            return new Page<>(new ArrayList<>(), null);
+        }
+        
+        if (items.size() <= pageSize) {
+            return new Page<>(items, null);
+        }
+        items.remove(pageSize);
+        return new Page<>(items, tokenOf.apply(items.get(pageSize - 1)));
+    }
+    
+    // Bulk operations
+    /**
+     * Inserts the books as one JDBC batch committed as a single transaction.
+     * Rows that collide with an existing id or ISBN are skipped and reported
+     * as false in the returned array.
+     */
+    public boolean[] addBooks(List<Book> books) {
+        boolean[] inserted = new boolean[books.size()];
+        if (pool == null) {
+            LOGGER.warning("Cannot add books - no database connection");
+            return inserted;
+        }
+        String sql = "INSERT IGNORE INTO books (book_id, title, author, isbn, genre, total_copies, available_copies) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
+            for (Book book : books) {
+                pst.setString(1, book.getBookId());
+                pst.setString(2, book.getTitle());
+                pst.setString(3, book.getAuthor());
+                pst.setString(4, book.getIsbn());
+                pst.setString(5, book.getGenre());
+                pst.setInt(6, book.getTotalCopies());
+                pst.setInt(7, book.getAvailableCopies());
+                pst.addBatch();
+            }
+            String[][] keys = new String[2][books.size()];
+            for (int i = 0; i < books.size(); i++) {
+                keys[0][i] = books.get(i).getBookId();
+                keys[1][i] = books.get(i).getIsbn();
+            }
+            executeBatchInTransaction(conn, pst, "books", new String[] { "book_id", "isbn" }, keys, inserted);
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i]) {
+                    searchIndex.index(books.get(i));
+                    typeahead.index(books.get(i));
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to add books", ex);
+        }
+        return inserted;
+    }
+    
+    /**
+     * Inserts the students as one JDBC batch committed as a single transaction.
+     * Rows that collide with an existing id or email are skipped and reported
+     * as false in the returned array.
+     */
+    public boolean[] addStudents(List<Student> students) {
+        boolean[] inserted = new boolean[students.size()];
+        if (pool == null) {
+            LOGGER.warning("Cannot add students - no database connection");
+            return inserted;
+        }
+        String sql = "INSERT IGNORE INTO students (student_id, student_name, email, address, phone_number, max_borrow_limit) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = pool.acquire();
+             PreparedStatement pst = conn.prepareStatement(sql)) {
+            for (Student student : students) {
+                pst.setString(1, student.getStudentId());
+                pst.setString(2, student.getStudentName());
+                pst.setString(3, student.getEmail());
+                pst.setString(4, student.getAddress());
+                pst.setString(5, student.getPhoneNumber());
+                pst.setInt(6, student.getMaxBorrowLimit());
+                pst.addBatch();
+            }
+            String[][] keys = new String[2][students.size()];
+            for (int i = 0; i < students.size(); i++) {
+                keys[0][i] = students.get(i).getStudentId();
+                keys[1][i] = students.get(i).getEmail();
+            }
+            executeBatchInTransaction(conn, pst, "students", new String[] { "student_id", "email" }, keys, inserted);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to add students", ex);
+        }
+        return inserted;
+    }
+    
+    /**
+     * Runs an INSERT IGNORE batch in one transaction. keys[c][i] is row i's
+     * value for the unique column columns[c]. A batch rewritten into
+     * multi-row inserts reports only SUCCESS_NO_INFO, so which rows were
+     * skipped is worked out up front from the keys that already exist.
+     */
+    private void executeBatchInTransaction(Connection conn, PreparedStatement pst, String table, String[] columns,
+                                           String[][] keys, boolean[] inserted) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            boolean[] expected = predictInserts(conn, table, columns, keys);
+            int[] counts = pst.executeBatch();
+            conn.commit();
+            for (int i = 0; i < counts.length && i < inserted.length; i++) {
+                inserted[i] = expected[i] && (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO);
+            }
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+    
+    // A row is inserted unless one of its keys exists or was taken by an earlier row of the batch
+    private boolean[] predictInserts(Connection conn, String table, String[] columns, String[][] keys) throws SQLException {
+        List<Set<String>> taken = new ArrayList<>();
+        for (int c = 0; c < columns.length; c++) {
+            taken.add(lockExistingKeys(conn, table, columns[c], keys[c]));
+        }
+        boolean[] expected = new boolean[keys[0].length];
+        for (int i = 0; i < expected.length; i++) {
+            boolean free = true;
+            for (int c = 0; c < columns.length && free; c++) {
+                free = keys[c][i] == null || !taken.get(c).contains(CollationKey.of(keys[c][i]));
+            }
+            if (free) {
+                for (int c = 0; c < columns.length; c++) {
+                    if (keys[c][i] != null) {
+                        taken.get(c).add(CollationKey.of(keys[c][i]));
+                    }
+                }
+            }
+            expected[i] = free;
+        }
+        return expected;
+    }
+    
+    /**
+     * Returns the match keys of the given values that already exist in the
+     * column, one SELECT ... IN per chunk. The values are compared the way
+     * the case and accent insensitive collation does. FOR UPDATE also locks
+     * the gaps of the missing values, so no other transaction can insert
+     * them before the batch does.
+     */
+    private Set<String> lockExistingKeys(Connection conn, String table, String column, String[] values) throws SQLException {
+        // Sorted like the other lock helpers, so concurrent batches take the locks in the same order
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String value : values) {
+            if (value != null) {
+                sorted.add(value);
+            }
+        }
+        List<String> distinct = new ArrayList<>(sorted);
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < distinct.size(); from += SEARCH_FETCH_CHUNK) {
+            List<String> chunk = distinct.subList(from, Math.min(from + SEARCH_FETCH_CHUNK, distinct.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT " + column + " FROM " + table + " WHERE " + column + " IN (" + placeholders + ") FOR UPDATE";
+            try (PreparedStatement pst = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pst.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(CollationKey.of(rs.getString(1)));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+    
+    // Transactional loan operations
+    @FunctionalInterface
+    private interface TransactionWork<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+    
+    /**
+     * Runs the work on one pooled connection inside a single transaction.
+     * The transaction is committed only when the work reports success.
+     */
+    private LoanResult inTransaction(String action, TransactionWork<LoanResult> work) {
+        return inTransaction(action, work, LoanResult::isSuccess, LoanResult.failure(LoanResult.Status.FAILED));
+    }
+    
+    // Commits when the result passes the check; returns onError if the database fails
+    private <T> T inTransaction(String action, TransactionWork<T> work, Predicate<T> commitIf, T onError) {
+        if (pool == null) {
+            LOGGER.warning("Cannot " + action + " - no database connection");
+            return onError;
+        }
+        try (Connection conn = pool.acquire()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                if (commitIf.test(result)) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                return result;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to " + action, ex);
+            return onError;
+        }
+    }
+    
+    /**
+     * Borrows a copy using guarded updates so concurrent checkouts can never
+     * oversell copies or exceed a student's borrow limit.
+     */
+    public LoanResult borrowBook(BorrowRecord record) {
+        LoanResult result = inTransaction("borrow book", conn -> {
+            String claimSlot = "UPDATE students SET current_borrow_count = current_borrow_count + 1 " +
+                               "WHERE student_id=? AND current_borrow_count < max_borrow_limit";
+            try (PreparedStatement pst = conn.prepareStatement(claimSlot)) {
+                pst.setString(1, record.getStudentId());
+                if (pst.executeUpdate() == 0) {
+                    return LoanResult.failure(exists(conn, "students", "student_id", record.getStudentId())
+                            ? LoanResult.Status.BORROW_LIMIT_REACHED : LoanResult.Status.STUDENT_NOT_FOUND);
+                }
+            }
+            
+            // A ready hold already has a copy set aside for this student
+            Hold hold = findActiveHold(conn, record.getStudentId(), record.getBookId());
+            boolean reserved = hold != null && hold.isReady() && !hold.isPickupExpired(LocalDate.now())
+                    && updateHoldStatus(conn, hold, Hold.Status.FULFILLED);
+            if (!reserved) {
+                String claimCopy = "UPDATE books SET available_copies = available_copies - 1 " +
+                                   "WHERE book_id=? AND available_copies > 0";
+                try (PreparedStatement pst = conn.prepareStatement(claimCopy)) {
+                    pst.setString(1, record.getBookId());
+                    if (pst.executeUpdate() == 0) {
+                        return LoanResult.failure(exists(conn, "books", "book_id", record.getBookId())
+                                ? LoanResult.Status.BOOK_UNAVAILABLE : LoanResult.Status.BOOK_NOT_FOUND);
+                    }
+                }
+                // A student still waiting in the queue leaves it once they have a copy
+                if (hold != null && !hold.isReady()) {
+                    updateHoldStatus(conn, hold, Hold.Status.FULFILLED);
+                }
+            }
+            
+            String insertRecord = "INSERT INTO borrow_records (record_id, student_id, book_id, borrow_date, due_date, is_returned, fine_amount) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pst = conn.prepareStatement(insertRecord)) {
+                pst.setString(1, record.getRecordId());
+                pst.setString(2, record.getStudentId());
+                pst.setString(3, record.getBookId());
+                pst.setDate(4, Date.valueOf(record.getBorrowDate()));
+                pst.setDate(5, Date.valueOf(record.getDueDate()));
+                pst.setBoolean(6, record.isReturned());
+                pst.setDouble(7, record.getFineAmount());
+                pst.executeUpdate();
+            }
+            return LoanResult.success(record);
+        });
+        invalidateLoanParties(result, record.getStudentId(), record.getBookId());
+        if (result.isSuccess()) {
+            countLoan(record.getBookId());
+        }
+        return result;
+    }
+    
+    /**
+     * Closes the student's active loan for the book, computes the fine and
+     * releases the copy and the borrow slot in one transaction.
+     */
+    public LoanResult returnBook(String studentId, String bookId) {
+        LoanResult result = inTransaction("return book", conn -> {
+            // Student row first, as borrowBook does, so a concurrent borrow by the same student cannot deadlock with it
+            if (lockStudentBorrowState(conn, studentId) == null) {
+                return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+            }
+            BorrowRecord record = lockActiveRecord(conn, studentId, bookId);
+            if (record == null) {
+                return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+            }
+            record.returnBook();
+            
+            String closeRecord = "UPDATE borrow_records SET return_date=?, is_returned=TRUE, fine_amount=? " +
+                                 "WHERE record_id=? AND is_returned=FALSE";
+            try (PreparedStatement pst = conn.prepareStatement(closeRecord)) {
+                pst.setDate(1, Date.valueOf(record.getReturnDate()));
+                pst.setDouble(2, record.getFineAmount());
+                pst.setString(3, record.getRecordId());
+                if (pst.executeUpdate() == 0) {
+                    return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+                }
+            }
+            
+            // The copy goes to the next hold in line, or back on the shelf if nobody is waiting
+            Hold promoted = passOnCopy(conn, bookId);
+            
+            String releaseSlot = "UPDATE students SET current_borrow_count = current_borrow_count - 1 " +
+                                 "WHERE student_id=? AND current_borrow_count > 0";
+            try (PreparedStatement pst = conn.prepareStatement(releaseSlot)) {
+                pst.setString(1, studentId);
+                pst.executeUpdate();
+            }
+            return LoanResult.success(record, promoted);
+        });
+        invalidateLoanParties(result, studentId, bookId);
+        return result;
+    }
+    
+    /**
+     * Checks out several books for one student in a single transaction, as a
+     * self-checkout station does with a scanned stack. The student row and
+     * all book rows are locked with one query each, every item is decided
+     * in memory in scan order, and the changes are written as batches, so
+     * the round trips do not grow with the number of books. Items that fail
+     * do not stop the others; the result has one entry per record.
+     */
+    public List<LoanResult> borrowBooks(List<BorrowRecord> records) {
+        if (records.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String studentId = records.get(0).getStudentId();
+        List<LoanResult> results = inTransaction("borrow books", conn -> {
+            List<LoanResult> decided = new ArrayList<>(records.size());
+            int[] borrowState = lockStudentBorrowState(conn, studentId);
+            if (borrowState == null) {
+                return Collections.nCopies(records.size(), LoanResult.failure(LoanResult.Status.STUDENT_NOT_FOUND));
+            }
+            int freeSlots = borrowState[1] - borrowState[0];
+            List<String> bookIds = records.stream().map(BorrowRecord::getBookId).collect(Collectors.toList());
+            Map<String, Integer> available = lockAvailableCopies(conn, bookIds);
+            Map<String, Hold> holdsByBook = lockActiveHolds(conn, studentId, bookIds);
+            LocalDate today = LocalDate.now();
+            List<BorrowRecord> granted = new ArrayList<>();
+            List<BorrowRecord> claimed = new ArrayList<>();
+            List<Hold> fulfilled = new ArrayList<>();
+            for (BorrowRecord record : records) {
+                Integer copies = available.get(record.getBookId());
+                Hold hold = holdsByBook.get(record.getBookId());
+                // A ready hold already has a copy set aside for this student
+                boolean reserved = hold != null && hold.isReady() && !hold.isPickupExpired(today);
+                if (!record.getStudentId().equals(studentId)) {
+                    decided.add(LoanResult.failure(LoanResult.Status.FAILED));
+                } else if (copies == null) {
+                    decided.add(LoanResult.failure(LoanResult.Status.BOOK_NOT_FOUND));
+                } else if (copies == 0 && !reserved) {
+                    decided.add(LoanResult.failure(LoanResult.Status.BOOK_UNAVAILABLE));
+                } else if (freeSlots == 0) {
+                    decided.add(LoanResult.failure(LoanResult.Status.BORROW_LIMIT_REACHED));
+                } else {
+                    if (!reserved) {
+                        available.put(record.getBookId(), copies - 1);
+                        claimed.add(record);
+                    }
+                    // An expired ready hold keeps its set-aside copy until expiry passes it on
+                    if (hold != null && (reserved || !hold.isReady())) {
+                        holdsByBook.remove(record.getBookId());
+                        fulfilled.add(hold);
+                    }
+                    freeSlots--;
+                    granted.add(record);
+                    decided.add(LoanResult.success(record));
+                }
+            }
+            if (granted.isEmpty()) {
+                return decided;
+            }
+            
+            // The rows are locked, so plain updates are safe
+            try (PreparedStatement pst = conn.prepareStatement(
+                    "UPDATE books SET available_copies = available_copies - 1 WHERE book_id=?")) {
+                for (BorrowRecord record : claimed) {
+                    pst.setString(1, record.getBookId());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+            try (PreparedStatement pst = conn.prepareStatement("UPDATE holds SET status='FULFILLED' WHERE hold_id=?")) {
+                for (Hold hold : fulfilled) {
+                    pst.setString(1, hold.getHoldId());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+            try (PreparedStatement pst = conn.prepareStatement(
+                    "UPDATE students SET current_borrow_count = current_borrow_count + ? WHERE student_id=?")) {
+                pst.setInt(1, granted.size());
+                pst.setString(2, studentId);
+                pst.executeUpdate();
+            }
+            String insertRecord = "INSERT INTO borrow_records (record_id, student_id, book_id, borrow_date, due_date, is_returned, fine_amount) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pst = conn.prepareStatement(insertRecord)) {
+                for (BorrowRecord record : granted) {
+                    pst.setString(1, record.getRecordId());
+                    pst.setString(2, record.getStudentId());
+                    pst.setString(3, record.getBookId());
+                    pst.setDate(4, Date.valueOf(record.getBorrowDate()));
+                    pst.setDate(5, Date.valueOf(record.getDueDate()));
+                    pst.setBoolean(6, record.isReturned());
+                    pst.setDouble(7, record.getFineAmount());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+            return decided;
+        }, decided -> decided.stream().anyMatch(LoanResult::isSuccess), null);
+        
+        if (results == null) {
+            return new ArrayList<>(Collections.nCopies(records.size(), LoanResult.failure(LoanResult.Status.FAILED)));
+        }
+        for (LoanResult result : results) {
+            if (result.isSuccess()) {
+                invalidateLoanParties(result, studentId, result.getRecord().getBookId());
+                countLoan(result.getRecord().getBookId());
+            }
+        }
+        return new ArrayList<>(results);
+    }
+    
+    /**
+     * Returns several books for one student in a single transaction. Each
+     * book closes the student's oldest active loan of it; all of those loans
+     * are locked with one query and closed, released and uncounted in batches.
+     * The returned copies of a book go to its waiting holds first, with one
+     * query per distinct book.
+     */
+    public List<LoanResult> returnBooks(String studentId, List<String> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<LoanResult> results = inTransaction("return books", conn -> {
+            // Student row first, as in every loan transaction
+            if (lockStudentBorrowState(conn, studentId) == null) {
+                return Collections.nCopies(bookIds.size(), LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN));
+            }
+            Map<String, Deque<BorrowRecord>> activeByBook = lockActiveRecords(conn, studentId, bookIds);
+            List<LoanResult> decided = new ArrayList<>(bookIds.size());
+            List<BorrowRecord> closed = new ArrayList<>();
+            // Positions in decided of each book's closed loans, in scan order
+            Map<String, List<Integer>> returnedByBook = new LinkedHashMap<>();
+            for (String bookId : bookIds) {
+                Deque<BorrowRecord> active = activeByBook.get(bookId);
+                BorrowRecord record = active != null ? active.pollFirst() : null;
+                if (record == null) {
+                    decided.add(LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN));
+                    continue;
+                }
+                record.returnBook();
+                closed.add(record);
+                returnedByBook.computeIfAbsent(bookId, id -> new ArrayList<>()).add(decided.size());
+                decided.add(LoanResult.success(record));
+            }
+            if (closed.isEmpty()) {
+                return decided;
+            }
+            
+            String closeRecord = "UPDATE borrow_records SET return_date=?, is_returned=TRUE, fine_amount=? " +
+                                 "WHERE record_id=? AND is_returned=FALSE";
+            try (PreparedStatement pst = conn.prepareStatement(closeRecord)) {
+                for (BorrowRecord record : closed) {
+                    pst.setDate(1, Date.valueOf(record.getReturnDate()));
+                    pst.setDouble(2, record.getFineAmount());
+                    pst.setString(3, record.getRecordId());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+            lockAvailableCopies(conn, new ArrayList<>(returnedByBook.keySet()));
+            String releaseCopies = "UPDATE books SET available_copies = LEAST(available_copies + ?, total_copies) " +
+                                   "WHERE book_id=?";
+            try (PreparedStatement pst = conn.prepareStatement(releaseCopies)) {
+                for (Map.Entry<String, List<Integer>> entry : returnedByBook.entrySet()) {
+                    List<Integer> positions = entry.getValue();
+                    List<Hold> promoted = promoteWaitingHolds(conn, entry.getKey(), positions.size());
+                    for (int i = 0; i < promoted.size(); i++) {
+                        int position = positions.get(i);
+                        decided.set(position, LoanResult.success(decided.get(position).getRecord(), promoted.get(i)));
+                    }
+                    if (promoted.size() < positions.size()) {
+                        pst.setInt(1, positions.size() - promoted.size());
+                        pst.setString(2, entry.getKey());
+                        pst.addBatch();
+                    }
+                }
+                pst.executeBatch();
+            }
+            String releaseSlots = "UPDATE students SET current_borrow_count = GREATEST(current_borrow_count - ?, 0) " +
+                                  "WHERE student_id=?";
+            try (PreparedStatement pst = conn.prepareStatement(releaseSlots)) {
+                pst.setInt(1, closed.size());
+                pst.setString(2, studentId);
+                pst.executeUpdate();
+            }
+            return decided;
+        }, decided -> decided.stream().anyMatch(LoanResult::isSuccess), null);
+        
+        if (results == null) {
+            return new ArrayList<>(Collections.nCopies(bookIds.size(), LoanResult.failure(LoanResult.Status.FAILED)));
+        }
+        for (LoanResult result : results) {
+            invalidateLoanParties(result, studentId, result.isSuccess() ? result.getRecord().getBookId() : null);
+        }
+        return new ArrayList<>(results);
+    }
+    
+    // Returns {current_borrow_count, max_borrow_limit} with the student row locked, or null if there is no such student
+    private int[] lockStudentBorrowState(Connection conn, String studentId) throws SQLException {
+        String sql = "SELECT current_borrow_count, max_borrow_limit FROM students WHERE student_id=? FOR UPDATE";
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, studentId);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? new int[] { rs.getInt("current_borrow_count"), rs.getInt("max_borrow_limit") } : null;
+            }
+        }
+    }
+    
+    // Locks the rows of all the books in one query; missing books are absent from the map
+    private Map<String, Integer> lockAvailableCopies(Connection conn, List<String> bookIds) throws SQLException {
+        List<String> distinct = new ArrayList<>(new TreeSet<>(bookIds));
+        String placeholders = String.join(",", Collections.nCopies(distinct.size(), "?"));
+        String sql = "SELECT book_id, available_copies FROM books WHERE book_id IN (" + placeholders + ") FOR UPDATE";
+        Map<String, Integer> available = new HashMap<>();
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            for (int i = 0; i < distinct.size(); i++) {
+                pst.setString(i + 1, distinct.get(i));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    available.put(rs.getString("book_id"), rs.getInt("available_copies"));
+                }
+            }
+        }
+        return available;
+    }
+    
+    // Locks the student's active loans of the books in one query, oldest first per book
+    private Map<String, Deque<BorrowRecord>> lockActiveRecords(Connection conn, String studentId, List<String> bookIds) throws SQLException {
+        List<String> distinct = new ArrayList<>(new TreeSet<>(bookIds));
+        String placeholders = String.join(",", Collections.nCopies(distinct.size(), "?"));
+        String sql = "SELECT * FROM borrow_records WHERE student_id=? AND is_returned=FALSE AND book_id IN (" + placeholders + ") " +
+                     "ORDER BY borrow_date FOR UPDATE";
+        Map<String, Deque<BorrowRecord>> activeByBook = new HashMap<>();
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, studentId);
+            for (int i = 0; i < distinct.size(); i++) {
+                pst.setString(i + 2, distinct.get(i));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    BorrowRecord record = new BorrowRecord(
+                        rs.getString("record_id"),
+                        rs.getString("student_id"),
+                        rs.getString("book_id"),
+                        rs.getDate("borrow_date").toLocalDate(),
+                        rs.getDate("due_date").toLocalDate(),
+                        null,
+                        false,
+                        rs.getDouble("fine_amount")
+                    );
+                    activeByBook.computeIfAbsent(record.getBookId(), id -> new ArrayDeque<>()).addLast(record);
+                }
+            }
+        }
+        return activeByBook;
+    }
+    
+    // Locks the student's waiting and ready holds on the books in one query, keyed by book
+    private Map<String, Hold> lockActiveHolds(Connection conn, String studentId, List<String> bookIds) throws SQLException {
+        List<String> distinct = new ArrayList<>(new TreeSet<>(bookIds));
+        String placeholders = String.join(",", Collections.nCopies(distinct.size(), "?"));
+        String sql = "SELECT * FROM holds WHERE student_id=? AND status IN ('WAITING', 'READY') AND book_id IN (" + placeholders + ") FOR UPDATE";
+        Map<String, Hold> holdsByBook = new HashMap<>();
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, studentId);
+            for (int i = 0; i < distinct.size(); i++) {
+                pst.setString(i + 2, distinct.get(i));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Hold hold = mapHold(rs);
+                    holdsByBook.put(hold.getBookId(), hold);
+                }
+            }
+        }
+        return holdsByBook;
+    }
+    
+    // Borrow and return change the cached copy and borrow counts
+    private void invalidateLoanParties(LoanResult result, String studentId, String bookId) {
+        if (result.isSuccess()) {
+            studentCache.invalidate(studentId);
+            bookCache.invalidate(bookId);
+        }
+    }
+    
+    /**
+     * Extends the due date of the student's active loan for the book, unless
+     * it is more than maxDaysOverdue days overdue.
+     */
+    public LoanResult renewBook(String studentId, String bookId, int additionalDays, int maxDaysOverdue) {
+        return inTransaction("renew book", conn -> {
+            BorrowRecord record = lockActiveRecord(conn, studentId, bookId);
+            if (record == null) {
+                return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+            }
+            if (record.getDaysOverdue() > maxDaysOverdue) {
+                return LoanResult.failure(LoanResult.Status.TOO_OVERDUE);
+            }
+            
+            LocalDate newDueDate = record.getDueDate().plusDays(additionalDays);
+            String extend = "UPDATE borrow_records SET due_date=?, fine_amount=0 WHERE record_id=? AND is_returned=FALSE";
+            try (PreparedStatement pst = conn.prepareStatement(extend)) {
+                pst.setDate(1, Date.valueOf(newDueDate));
+                pst.setString(2, record.getRecordId());
+                if (pst.executeUpdate() == 0) {
+                    return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+                }
+            }
+            return LoanResult.success(new BorrowRecord(record.getRecordId(), studentId, bookId,
+                    record.getBorrowDate(), newDueDate, null, false, 0.0));
+        });
+    }
+    
+    private BorrowRecord lockActiveRecord(Connection conn, String studentId, String bookId) throws SQLException {
+        String sql = "SELECT * FROM borrow_records WHERE student_id=? AND book_id=? AND is_returned=FALSE " +
+                     "ORDER BY borrow_date LIMIT 1 FOR UPDATE";
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, studentId);
+            pst.setString(2, bookId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new BorrowRecord(
                     rs.getString("record_id"),
                     rs.getString("student_id"),
                     rs.getString("book_id"),
@@ -469,22 +1616,341 @@ public class DatabaseManager {
                     false,
                     rs.getDouble("fine_amount")
                 );
-                records.add(record);
+            }
+        }
+    }
+    
+    private boolean exists(Connection conn, String table, String idColumn, String id) throws SQLException {
+        String sql = "SELECT 1 FROM " + table + " WHERE " + idColumn + "=?";
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, id);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    // Hold queues
+    /*
+     * Every change to a book's queue first locks the book row, so the queue
+     * changes of a book run one at a time while other books are unaffected.
+     * idx_holds_queue serves the head of a queue as a single index seek.
+     */
+    public HoldResult placeHold(Hold hold) {
+        return inTransaction("place hold", conn -> {
+            if (!exists(conn, "students", "student_id", hold.getStudentId())) {
+                return HoldResult.failure(HoldResult.Status.STUDENT_NOT_FOUND);
+            }
+            Integer available = lockBookRow(conn, hold.getBookId());
+            if (available == null) {
+                return HoldResult.failure(HoldResult.Status.BOOK_NOT_FOUND);
+            }
+            if (available > 0) {
+                return HoldResult.failure(HoldResult.Status.BOOK_AVAILABLE);
+            }
+            if (findActiveHold(conn, hold.getStudentId(), hold.getBookId()) != null) {
+                return HoldResult.failure(HoldResult.Status.ALREADY_HOLDING);
+            }
+            String sql = "INSERT INTO holds (hold_id, student_id, book_id, placed_at, status, ready_until) VALUES (?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pst = conn.prepareStatement(sql)) {
+                pst.setString(1, hold.getHoldId());
+                pst.setString(2, hold.getStudentId());
+                pst.setString(3, hold.getBookId());
+                pst.setTimestamp(4, Timestamp.valueOf(hold.getPlacedAt()));
+                pst.setString(5, hold.getStatus().name());
+                pst.setDate(6, hold.getReadyUntil() != null ? Date.valueOf(hold.getReadyUntil()) : null);
+                pst.executeUpdate();
+            }
+            return HoldResult.success(hold);
+        }, HoldResult::isSuccess, HoldResult.failure(HoldResult.Status.FAILED));
+    }
+    
+    // Cancelling a ready hold passes its copy on to the next in line
+    public HoldResult cancelHold(String studentId, String bookId) {
+        HoldResult result = inTransaction("cancel hold", conn -> {
+            if (lockBookRow(conn, bookId) == null) {
+                return HoldResult.failure(HoldResult.Status.NO_HOLD);
+            }
+            Hold hold = findActiveHold(conn, studentId, bookId);
+            if (hold == null || !updateHoldStatus(conn, hold, Hold.Status.CANCELLED)) {
+                return HoldResult.failure(HoldResult.Status.NO_HOLD);
+            }
+            if (hold.isReady()) {
+                passOnCopy(conn, bookId);
+            }
+            Hold cancelled = new Hold(hold);
+            cancelled.setStatus(Hold.Status.CANCELLED);
+            return HoldResult.success(cancelled);
+        }, HoldResult::isSuccess, HoldResult.failure(HoldResult.Status.FAILED));
+        if (result.isSuccess()) {
+            bookCache.invalidate(bookId);
+        }
+        return result;
+    }
+    
+    /**
+     * Expires the ready holds whose pickup window ended before asOf and
+     * passes each copy on to the next hold or back to the shelf, one short
+     * transaction per hold. Returns how many holds expired.
+     */
+    public int expireHolds(LocalDate asOf) {
+        List<Hold> lapsed;
+        try (Stream<Hold> ready = streamQuery("SELECT * FROM holds WHERE status='READY' AND ready_until < ?",
+                                              pst -> pst.setDate(1, Date.valueOf(asOf)), DatabaseManager::mapHold)) {
+            lapsed = ready.collect(Collectors.toList());
+        }
+        int expired = 0;
+        for (Hold hold : lapsed) {
+            boolean done = inTransaction("expire hold", conn -> {
+                lockBookRow(conn, hold.getBookId());
+                // Skipped if the holder picked the copy up or cancelled in the meantime
+                if (!updateHoldStatus(conn, hold, Hold.Status.EXPIRED)) {
+                    return false;
+                }
+                passOnCopy(conn, hold.getBookId());
+                return true;
+            }, Boolean::booleanValue, false);
+            if (done) {
+                bookCache.invalidate(hold.getBookId());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            LOGGER.info("Expired " + expired + " holds not picked up by " + asOf);
+        }
+        return expired;
+    }
+    
+    // Ready holds first, then the waiting ones in queue order
+    public List<Hold> getHoldsByBook(String bookId) {
+        String sql = "SELECT * FROM holds WHERE book_id=? AND status IN ('READY', 'WAITING') " +
+                     "ORDER BY status = 'WAITING', placed_at, hold_id";
+        try (Stream<Hold> queue = streamQuery(sql, pst -> pst.setString(1, bookId), DatabaseManager::mapHold)) {
+            return queue.collect(Collectors.toList());
+        }
+    }
+    
+    public List<Hold> getHoldsByStudent(String studentId) {
+        String sql = "SELECT * FROM holds WHERE student_id=? AND status IN ('READY', 'WAITING') ORDER BY placed_at";
+        try (Stream<Hold> held = streamQuery(sql, pst -> pst.setString(1, studentId), DatabaseManager::mapHold)) {
+            return held.collect(Collectors.toList());
+        }
+    }
+    
+    // Returns the book's available copies with its row locked, or null if there is no such book
+    private Integer lockBookRow(Connection conn, String bookId) throws SQLException {
+        try (PreparedStatement pst = conn.prepareStatement("SELECT available_copies FROM books WHERE book_id=? FOR UPDATE")) {
+            pst.setString(1, bookId);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+    
+    private Hold findActiveHold(Connection conn, String studentId, String bookId) throws SQLException {
+        String sql = "SELECT * FROM holds WHERE student_id=? AND book_id=? AND status IN ('WAITING', 'READY')";
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, studentId);
+            pst.setString(2, bookId);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? mapHold(rs) : null;
+            }
+        }
+    }
+    
+    // Guarded by the status the hold was read with, so concurrent changes to it are not overwritten
+    private boolean updateHoldStatus(Connection conn, Hold hold, Hold.Status status) throws SQLException {
+        try (PreparedStatement pst = conn.prepareStatement("UPDATE holds SET status=? WHERE hold_id=? AND status=?")) {
+            pst.setString(1, status.name());
+            pst.setString(2, hold.getHoldId());
+            pst.setString(3, hold.getStatus().name());
+            return pst.executeUpdate() > 0;
+        }
+    }
+    
+    /**
+     * Locks the first count waiting holds of the book, oldest first, and
+     * starts their pickup windows. The book row must already be locked.
+     */
+    private List<Hold> promoteWaitingHolds(Connection conn, String bookId, int count) throws SQLException {
+        List<Hold> promoted = new ArrayList<>(count);
+        String sql = "SELECT * FROM holds WHERE book_id=? AND status='WAITING' ORDER BY placed_at, hold_id LIMIT ? FOR UPDATE";
+        try (PreparedStatement pst = conn.prepareStatement(sql)) {
+            pst.setString(1, bookId);
+            pst.setInt(2, count);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    promoted.add(mapHold(rs));
+                }
+            }
+        }
+        if (promoted.isEmpty()) {
+            return promoted;
+        }
+        try (PreparedStatement pst = conn.prepareStatement("UPDATE holds SET status='READY', ready_until=? WHERE hold_id=?")) {
+            for (Hold hold : promoted) {
+                hold.markReady();
+                pst.setDate(1, Date.valueOf(hold.getReadyUntil()));
+                pst.setString(2, hold.getHoldId());
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+        return promoted;
+    }
+    
+    // A freed copy goes to the next hold in line, or back on the shelf; returns the promoted hold, if any
+    private Hold passOnCopy(Connection conn, String bookId) throws SQLException {
+        lockBookRow(conn, bookId);
+        List<Hold> promoted = promoteWaitingHolds(conn, bookId, 1);
+        if (!promoted.isEmpty()) {
+            return promoted.get(0);
+        }
+        String releaseCopy = "UPDATE books SET available_copies = available_copies + 1 " +
+                             "WHERE book_id=? AND available_copies < total_copies";
+        try (PreparedStatement pst = conn.prepareStatement(releaseCopy)) {
+            pst.setString(1, bookId);
+            pst.executeUpdate();
+        }
+        return null;
+    }
+    
+    private static Hold mapHold(ResultSet rs) throws SQLException {
+        Date readyUntil = rs.getDate("ready_until");
+        return new Hold(
+            rs.getString("hold_id"),
+            rs.getString("student_id"),
+            rs.getString("book_id"),
+            rs.getTimestamp("placed_at").toLocalDateTime(),
+            Hold.Status.valueOf(rs.getString("status")),
+            readyUntil != null ? readyUntil.toLocalDate() : null
+        );
+    }
+    
+    // Overdue fine accrual
+    /**
+     * Brings the stored fines of one chunk of overdue active loans up to
+     * asOf. The chunk is read by keyset on (due_date, record_id), which
+     * idx_borrow_records_active_due serves without sorting, and the changed
+     * fines are written as one JDBC batch committed with the chunk. Each
+     * update is guarded by the due date it was computed from, so a loan
+     * returned or renewed in the meantime keeps the fine that operation set.
+     * Returns the chunk's loans with their accrued fines, or null if the
+     * database failed.
+     */
+    public Page<BorrowRecord> accrueFines(LocalDate asOf, String pageToken, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        String[] after = Page.decodeToken(pageToken);
+        String sql = "SELECT * FROM borrow_records WHERE is_returned = FALSE AND due_date < ?"
+                   + (after != null ? " AND (due_date > ? OR (due_date = ? AND record_id > ?))" : "")
+                   + " ORDER BY due_date, record_id LIMIT ?";
+        return inTransaction("accrue fines", conn -> {
+            List<BorrowRecord> chunk = new ArrayList<>(chunkSize + 1);
+            try (PreparedStatement pst = conn.prepareStatement(sql)) {
+                int index = 1;
+                pst.setDate(index++, Date.valueOf(asOf));
+                if (after != null) {
+                    pst.setDate(index++, Date.valueOf(after[0]));
+                    pst.setDate(index++, Date.valueOf(after[0]));
+                    pst.setString(index++, after[1]);
+                }
+                // Fetch one extra row to learn whether another chunk follows
+                pst.setInt(index, chunkSize + 1);
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        chunk.add(mapBorrowRecord(rs));
+                    }
+                }
+            }
+            boolean hasMore = chunk.size() > chunkSize;
+            if (hasMore) {
+                chunk.remove(chunkSize);
+            }
+            
+            String accrue = "UPDATE borrow_records SET fine_amount=? WHERE record_id=? AND is_returned=FALSE AND due_date=?";
+            try (PreparedStatement pst = conn.prepareStatement(accrue)) {
+                int changed = 0;
+                for (BorrowRecord record : chunk) {
+                    double stored = record.getFineAmount();
+                    record.calculateFine(asOf);
+                    // A rerun of the same day finds nothing to change
+                    if (record.getFineAmount() != stored) {
+                        pst.setDouble(1, record.getFineAmount());
+                        pst.setString(2, record.getRecordId());
+                        pst.setDate(3, Date.valueOf(record.getDueDate()));
+                        pst.addBatch();
+                        changed++;
+                    }
+                }
+                if (changed > 0) {
+                    pst.executeBatch();
+                }
+            }
+            BorrowRecord last = chunk.isEmpty() ? null : chunk.get(chunk.size() - 1);
+            return new Page<>(chunk, hasMore ? Page.encodeToken(last.getFormattedDueDate(), last.getRecordId()) : null);
+        }, chunk -> true, null);
+    }
+    
+    // Aggregate statistics
+    /**
+     * Computes all dashboard figures with SQL aggregates in one round trip,
+     * instead of pulling every student and overdue record into memory.
+     */
+    public LibraryManager.LibraryStatistics computeLibraryStatistics() {
+        if (pool == null) {
+            LOGGER.warning("Cannot compute statistics - no database connection");
+            return new LibraryManager.LibraryStatistics(0, 0, 0, 0, 0.0);
+        }
+        String sql = """
+            SELECT (SELECT COUNT(*) FROM students),
+                   (SELECT COUNT(*) FROM books),
+                   (SELECT COALESCE(SUM(current_borrow_count), 0) FROM students),
+                   COUNT(*),
+                   COALESCE(SUM(fine_amount), 0)
+            FROM borrow_records
+            WHERE is_returned = FALSE AND due_date < CURDATE()
+            """;
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return new LibraryManager.LibraryStatistics(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getDouble(5));
             }
         } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "Failed to get overdue records", ex);
+            LOGGER.log(Level.SEVERE, "Failed to compute library statistics", ex);
         }
-        return records;
+        return new LibraryManager.LibraryStatistics(0, 0, 0, 0, 0.0);
+    }
+    
+    public LibraryManager.OverdueSummary getOverdueSummary() {
+        if (pool == null) {
+            LOGGER.warning("Cannot summarize overdue records - no database connection");
+            return new LibraryManager.OverdueSummary(0, 0.0);
+        }
+        String sql = "SELECT COUNT(*), COALESCE(SUM(fine_amount), 0) FROM borrow_records WHERE is_returned = FALSE AND due_date < CURDATE()";
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return new LibraryManager.OverdueSummary(rs.getInt(1), rs.getDouble(2));
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to summarize overdue records", ex);
+        }
+        return new LibraryManager.OverdueSummary(0, 0.0);
     }
     
     // Utility methods
     public int getTotalStudents() {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot count students - no database connection");
             return 0;
         }
         String sql = "SELECT COUNT(*) FROM students";
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
                 return rs.getInt(1);
@@ -496,12 +1962,13 @@ public class DatabaseManager {
     }
     
     public int getTotalBooks() {
-        if (connection == null) {
+        if (pool == null) {
             LOGGER.warning("Cannot count books - no database connection");
             return 0;
         }
         String sql = "SELECT COUNT(*) FROM books";
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = pool.acquire();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
                 return rs.getInt(1);
@@ -513,13 +1980,9 @@ public class DatabaseManager {
     }
     
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                LOGGER.info("Database connection closed");
-            }
-        } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "Failed to close database connection", ex);
+        if (pool != null) {
+            pool.close();
+            LOGGER.info("Database connection closed");
         }
     }
 }
\ No newline at end of file
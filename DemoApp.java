@@ -6,6 +6,7 @@ import java.util.Scanner;
  */
 public class DemoApp {
     private static Scanner scanner = new Scanner(System.in);
+    private static LibraryManager libraryManager;
     
     public static void main(String[] args) {
         System.out.println("=================================");
@@ -50,9 +51,9 @@ public class DemoApp {
     }
     
     private static void initializeDemoSystem() {
-        // Create in-memory data structures
+        // Run the real service logic on the in-memory storage backend
         System.out.println("Initializing demo system with sample data...");
-        // In a real implementation, we'd use the InMemoryDatabaseManager here
+        libraryManager = new LibraryManager(InMemoryDatabaseManager.getInstance());
     }
     
     private static void showSampleData() {
@@ -123,11 +124,8 @@ public class DemoApp {
         System.out.println("- Book Report: Complete catalog with availability");
         System.out.println("- Overdue Report: All overdue books with fine amounts");
         System.out.println();
-        System.out.println("Sample statistics would show:");
-        System.out.println("- Total Students: 3");
-        System.out.println("- Total Books: 17 copies across 5 titles");
-        System.out.println("- Available Books: 17 (none currently borrowed in demo)");
-        System.out.println("- Total Fines: $0.00");
+        System.out.println("Current statistics:");
+        System.out.println(libraryManager.getLibraryStatistics());
     }
     
     private static void demoSearch() {
@@ -0,0 +1,158 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * EntityCache is a bounded read-through cache for entities looked up by id.
+ * Entries are evicted least-recently-used once the cache is full and expire
+ * after a fixed time-to-live. Values are copied on the way in and out so
+ * callers can never mutate a cached entity.
+ */
+public class EntityCache<V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    // Bumped on every invalidation so loads that raced with a write are not cached
+    private long generation;
+
+    // Counters
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+    private long invalidationCount;
+
+    public EntityCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        // Access order makes iteration order least-recently-used first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached value for the id, loading and caching it on a miss.
+     * A null result from the loader is not cached.
+     */
+    public V get(String id, Function<String, V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(id);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hitCount++;
+                    return copier.apply(entry.value);
+                }
+                entries.remove(id);
+                expirationCount++;
+            }
+            missCount++;
+            loadGeneration = generation;
+        }
+
+        // Load outside the lock so a slow database call does not block other lookups
+        V loaded = loader.apply(id);
+        if (loaded != null) {
+            synchronized (this) {
+                // A write invalidated entries while we were loading, so the loaded value may be stale
+                if (loadGeneration == generation) {
+                    put(id, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void put(String id, V value) {
+        entries.put(id, new Entry<>(copier.apply(value), System.currentTimeMillis() + ttlMillis));
+        Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized void invalidate(String id) {
+        generation++;
+        if (entries.remove(id) != null) {
+            invalidationCount++;
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidationCount += entries.size();
+        entries.clear();
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(entries.size(), maxSize, hitCount, missCount,
+                                   evictionCount, expirationCount, invalidationCount);
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Inner class for cache statistics
+    public static class CacheStatistics {
+        private final int size;
+        private final int maxSize;
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expirationCount;
+        private final long invalidationCount;
+
+        public CacheStatistics(int size, int maxSize, long hitCount, long missCount,
+                               long evictionCount, long expirationCount, long invalidationCount) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+            this.invalidationCount = invalidationCount;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxSize() { return maxSize; }
+        public long getHitCount() { return hitCount; }
+        public long getMissCount() { return missCount; }
+        public long getEvictionCount() { return evictionCount; }
+        public long getExpirationCount() { return expirationCount; }
+        public long getInvalidationCount() { return invalidationCount; }
+
+        public double getHitRate() {
+            long lookups = hitCount + missCount;
+            return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache Statistics:\n" +
+                               "- Size: %d/%d\n" +
+                               "- Hits: %d\n" +
+                               "- Misses: %d\n" +
+                               "- Hit Rate: %.1f%%\n" +
+                               "- Evictions: %d\n" +
+                               "- Expirations: %d\n" +
+                               "- Invalidations: %d",
+                               size, maxSize, hitCount, missCount, getHitRate() * 100,
+                               evictionCount, expirationCount, invalidationCount);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * EntityCodec is the binary encoding of students, books, borrow records and
+ * holds shared by the write-ahead log and the snapshot file. Every entity starts
+ * with its id, so readers can compare ids without decoding the rest.
+ */
+final class EntityCodec {
+    private EntityCodec() {
+    }
+    
+    static void writeStudent(DataOutput out, Student student) throws IOException {
+        writeString(out, student.getStudentId());
+        writeString(out, student.getStudentName());
+        writeString(out, student.getEmail());
+        writeString(out, student.getAddress());
+        writeString(out, student.getPhoneNumber());
+        out.writeInt(student.getMaxBorrowLimit());
+        out.writeInt(student.getCurrentBorrowCount());
+    }
+    
+    static Student readStudent(DataInput in) throws IOException {
+        Student student = new Student(readString(in), readString(in), readString(in), readString(in),
+                                      readString(in), in.readInt());
+        student.setCurrentBorrowCount(in.readInt());
+        return student;
+    }
+    
+    static void writeBook(DataOutput out, Book book) throws IOException {
+        writeString(out, book.getBookId());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        writeString(out, book.getIsbn());
+        writeString(out, book.getGenre());
+        out.writeInt(book.getTotalCopies());
+        out.writeInt(book.getAvailableCopies());
+    }
+    
+    static Book readBook(DataInput in) throws IOException {
+        Book book = new Book(readString(in), readString(in), readString(in), readString(in),
+                             readString(in), in.readInt());
+        book.setAvailableCopies(in.readInt());
+        return book;
+    }
+    
+    static void writeBorrowRecord(DataOutput out, BorrowRecord record) throws IOException {
+        writeString(out, record.getRecordId());
+        writeString(out, record.getStudentId());
+        writeString(out, record.getBookId());
+        writeDate(out, record.getBorrowDate());
+        writeDate(out, record.getDueDate());
+        writeDate(out, record.getReturnDate());
+        out.writeBoolean(record.isReturned());
+        out.writeDouble(record.getFineAmount());
+    }
+    
+    static BorrowRecord readBorrowRecord(DataInput in) throws IOException {
+        return new BorrowRecord(readString(in), readString(in), readString(in), readDate(in),
+                                readDate(in), readDate(in), in.readBoolean(), in.readDouble());
+    }
+    
+    static void writeHold(DataOutput out, Hold hold) throws IOException {
+        writeString(out, hold.getHoldId());
+        writeString(out, hold.getStudentId());
+        writeString(out, hold.getBookId());
+        out.writeLong(hold.getPlacedAt().toLocalDate().toEpochDay());
+        out.writeLong(hold.getPlacedAt().toLocalTime().toNanoOfDay());
+        out.writeByte(hold.getStatus().ordinal());
+        writeDate(out, hold.getReadyUntil());
+    }
+    
+    static Hold readHold(DataInput in) throws IOException {
+        String holdId = readString(in);
+        String studentId = readString(in);
+        String bookId = readString(in);
+        LocalDateTime placedAt = LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+        Hold.Status status = Hold.Status.values()[in.readByte()];
+        return new Hold(holdId, studentId, bookId, placedAt, status, readDate(in));
+    }
+    
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+    
+    static LocalDate readDate(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FineAccrualJob brings the stored fines of all overdue active loans up to
+ * date, so overdue reports and statistics show what each loan owes today
+ * rather than the 0 stored when it was borrowed.
+ *
+ * A run reads the clock once and accrues every loan as of that date. It walks
+ * the overdue loans in (due date, record id) order, one chunk at a time. Each
+ * chunk is one storage transaction with batched writes, so memory use stays
+ * constant however many loans are overdue.
+ *
+ * A run can be resumed. After each chunk the cursor is written to the
+ * checkpoint file, and a run that starts on the same date continues after the
+ * last committed chunk. A fine is a function of the due date and the run
+ * date, so repeating a chunk after a crash changes nothing. A run given a
+ * window stops once the window has passed and leaves the rest to the next run
+ * that day.
+ */
+public class FineAccrualJob {
+    private static final Logger LOGGER = Logger.getLogger(FineAccrualJob.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    // Checkpoint keys
+    private static final String AS_OF = "asOf";
+    private static final String CURSOR = "cursor";
+    private static final String LOANS_ACCRUED = "loansAccrued";
+    private static final String CHUNKS_COMMITTED = "chunksCommitted";
+    private static final String COMPLETE = "complete";
+
+    private final LibraryStorage storage;
+    // Null when runs are not resumable
+    private final Path checkpointFile;
+    private final int chunkSize;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    public FineAccrualJob(LibraryStorage storage, Path checkpointFile) {
+        this(storage, checkpointFile, DEFAULT_CHUNK_SIZE, Clock.systemDefaultZone());
+    }
+
+    public FineAccrualJob(LibraryStorage storage, Path checkpointFile, int chunkSize, Clock clock) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.storage = storage;
+        this.checkpointFile = checkpointFile;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+    }
+
+    // Runs until every overdue loan is accrued
+    public AccrualReport run() {
+        return run(null);
+    }
+
+    /**
+     * Accrues fines as of today, continuing today's earlier run if it did not
+     * finish. With a window, stops after the first chunk that ends past it.
+     */
+    public synchronized AccrualReport run(Duration window) {
+        LocalDate asOf = LocalDate.now(clock);
+        AccrualReport report = new AccrualReport(asOf);
+        long start = System.nanoTime();
+        long deadline = window != null ? start + window.toNanos() : Long.MAX_VALUE;
+
+        String cursor = null;
+        Properties checkpoint = readCheckpoint();
+        if (checkpoint != null && asOf.toString().equals(checkpoint.getProperty(AS_OF))) {
+            if (Boolean.parseBoolean(checkpoint.getProperty(COMPLETE))) {
+                report.complete = true;
+                LOGGER.info("Fines already accrued as of " + asOf);
+                return report;
+            }
+            cursor = checkpoint.getProperty(CURSOR);
+            report.resumed = true;
+            report.loansAccrued = Long.parseLong(checkpoint.getProperty(LOANS_ACCRUED, "0"));
+            report.chunksCommitted = Long.parseLong(checkpoint.getProperty(CHUNKS_COMMITTED, "0"));
+        }
+
+        while (true) {
+            Page<BorrowRecord> chunk = storage.accrueFines(asOf, cursor, chunkSize);
+            if (chunk == null) {
+                report.failed = true;
+                LOGGER.severe("Fine accrual as of " + asOf + " stopped by a storage failure; the next run resumes it");
+                break;
+            }
+            report.chunksCommitted++;
+            report.loansAccrued += chunk.getItems().size();
+            report.loansThisRun += chunk.getItems().size();
+            for (BorrowRecord record : chunk.getItems()) {
+                report.finesAccrued += record.getFineAmount();
+            }
+            cursor = chunk.getNextToken();
+            report.complete = !chunk.hasMore();
+            writeCheckpoint(asOf, cursor, report);
+            if (report.complete || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        LOGGER.info("Fine accrual as of " + asOf + (report.complete ? " finished: " : " paused: ")
+                    + report.loansAccrued + " loans in " + report.chunksCommitted + " chunks, "
+                    + String.format("%.0f", report.getLoansPerSecond()) + " loans/s");
+        return report;
+    }
+
+    /**
+     * Runs the job every day at the given time on a background thread, each
+     * run limited to the window. onFinish receives every report, e.g. to
+     * refresh cached overdue figures.
+     */
+    public synchronized void scheduleDaily(LocalTime at, Duration window, Consumer<AccrualReport> onFinish) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fine-accrual");
+            t.setDaemon(true);
+            return t;
+        });
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime next = now.toLocalDate().atTime(at);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        long initialDelay = Duration.between(now, next).toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                onFinish.accept(run(window));
+            } catch (RuntimeException ex) {
+                // A failed run must not cancel the schedule
+                LOGGER.log(Level.SEVERE, "Fine accrual failed", ex);
+            }
+        }, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Checkpoint file
+    private Properties readCheckpoint() {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return null;
+        }
+        Properties checkpoint = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            checkpoint.load(reader);
+            return checkpoint;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable fine accrual checkpoint " + checkpointFile, ex);
+            return null;
+        }
+    }
+
+    // Written to a temporary file and moved into place, so a crash leaves the old or the new cursor, never half of one
+    private void writeCheckpoint(LocalDate asOf, String cursor, AccrualReport report) {
+        if (checkpointFile == null) {
+            return;
+        }
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty(AS_OF, asOf.toString());
+        if (cursor != null) {
+            checkpoint.setProperty(CURSOR, cursor);
+        }
+        checkpoint.setProperty(LOANS_ACCRUED, Long.toString(report.loansAccrued));
+        checkpoint.setProperty(CHUNKS_COMMITTED, Long.toString(report.chunksCommitted));
+        checkpoint.setProperty(COMPLETE, Boolean.toString(report.complete));
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                checkpoint.store(writer, "Fine accrual progress");
+            }
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write fine accrual checkpoint " + checkpointFile, ex);
+        }
+    }
+
+    // Inner class for run results; counts include the chunks of the earlier run a resumed run continued
+    public static class AccrualReport {
+        private final LocalDate asOf;
+        private boolean resumed;
+        private boolean complete;
+        private boolean failed;
+        private long loansAccrued;
+        private long chunksCommitted;
+        // Loans and fines this run itself accrued
+        private long loansThisRun;
+        private double finesAccrued;
+        private long elapsedNanos;
+
+        private AccrualReport(LocalDate asOf) {
+            this.asOf = asOf;
+        }
+
+        public LocalDate getAsOf() { return asOf; }
+        public boolean isResumed() { return resumed; }
+        public boolean isComplete() { return complete; }
+        public boolean isFailed() { return failed; }
+        public long getLoansAccrued() { return loansAccrued; }
+        public long getChunksCommitted() { return chunksCommitted; }
+        public double getFinesAccrued() { return finesAccrued; }
+        public double getElapsedSeconds() { return elapsedNanos / 1_000_000_000.0; }
+
+        public double getLoansPerSecond() {
+            double seconds = getElapsedSeconds();
+            return seconds > 0 ? loansThisRun / seconds : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Fine Accrual Report:\n" +
+                               "- As Of: %s\n" +
+                               "- Complete: %s%s\n" +
+                               "- Loans Accrued: %d\n" +
+                               "- Chunks Committed: %d\n" +
+                               "- Fines Accrued: $%.2f\n" +
+                               "- Elapsed: %.2fs (%.0f loans/s)",
+                               asOf, complete, resumed ? " (resumed)" : "", loansAccrued, chunksCommitted,
+                               finesAccrued, getElapsedSeconds(), getLoansPerSecond());
+        }
+    }
+}
\ No newline at end of file
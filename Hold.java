@@ -0,0 +1,101 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Hold class represents a student's place in the queue for a book
+ */
+public class Hold {
+    // Days a returned copy is kept for the holder before it passes to the next in line
+    public static final int PICKUP_WINDOW_DAYS = 3;
+    
+    public enum Status {
+        WAITING,   // in the queue for the next returned copy
+        READY,     // a copy is reserved until readyUntil
+        FULFILLED, // the holder borrowed the reserved copy
+        CANCELLED,
+        EXPIRED    // the copy was not picked up in time
+    }
+    
+    private String holdId;
+    private String studentId;
+    private String bookId;
+    private LocalDateTime placedAt;
+    private Status status;
+    private LocalDate readyUntil;
+    
+    // Constructor for a new hold
+    public Hold(String holdId, String studentId, String bookId) {
+        this(holdId, studentId, bookId, LocalDateTime.now(), Status.WAITING, null);
+    }
+    
+    // Constructor for loading from database
+    public Hold(String holdId, String studentId, String bookId, LocalDateTime placedAt,
+                Status status, LocalDate readyUntil) {
+        this.holdId = holdId;
+        this.studentId = studentId;
+        this.bookId = bookId;
+        this.placedAt = placedAt;
+        this.status = status;
+        this.readyUntil = readyUntil;
+    }
+    
+    // Copy constructor
+    public Hold(Hold other) {
+        this(other.holdId, other.studentId, other.bookId, other.placedAt, other.status, other.readyUntil);
+    }
+    
+    // Getters
+    public String getHoldId() { return holdId; }
+    public String getStudentId() { return studentId; }
+    public String getBookId() { return bookId; }
+    public LocalDateTime getPlacedAt() { return placedAt; }
+    public Status getStatus() { return status; }
+    public LocalDate getReadyUntil() { return readyUntil; }
+    
+    // Setters
+    public void setStatus(Status status) { this.status = status; }
+    
+    // Business logic methods
+    public boolean isActive() {
+        return status == Status.WAITING || status == Status.READY;
+    }
+    
+    public boolean isReady() {
+        return status == Status.READY;
+    }
+    
+    // A ready hold can be picked up through the last day of its window
+    public boolean isPickupExpired(LocalDate asOf) {
+        return status == Status.READY && asOf.isAfter(readyUntil);
+    }
+    
+    // Reserves a returned copy for the holder, starting the pickup window today
+    public void markReady() {
+        this.status = Status.READY;
+        this.readyUntil = LocalDate.now().plusDays(PICKUP_WINDOW_DAYS);
+    }
+    
+    public String getFormattedReadyUntil() {
+        return readyUntil != null ? readyUntil.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) : "Not ready";
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Hold{ID='%s', StudentID='%s', BookID='%s', PlacedAt='%s', Status=%s, ReadyUntil='%s'}",
+                           holdId, studentId, bookId, placedAt, status, getFormattedReadyUntil());
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Hold hold = (Hold) obj;
+        return holdId != null ? holdId.equals(hold.holdId) : hold.holdId == null;
+    }
+    
+    @Override
+    public int hashCode() {
+        return holdId != null ? holdId.hashCode() : 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+/**
+ * HoldResult is the outcome of placing or cancelling a hold
+ */
+public class HoldResult {
+    public enum Status {
+        SUCCESS,
+        STUDENT_NOT_FOUND,
+        BOOK_NOT_FOUND,
+        BOOK_AVAILABLE,
+        ALREADY_HOLDING,
+        NO_HOLD,
+        FAILED
+    }
+
+    private final Status status;
+    private final Hold hold;
+
+    private HoldResult(Status status, Hold hold) {
+        this.status = status;
+        this.hold = hold;
+    }
+
+    public static HoldResult success(Hold hold) {
+        return new HoldResult(Status.SUCCESS, hold);
+    }
+
+    public static HoldResult failure(Status status) {
+        return new HoldResult(status, null);
+    }
+
+    public Status getStatus() { return status; }
+    public Hold getHold() { return hold; }
+    public boolean isSuccess() { return status == Status.SUCCESS; }
+
+    @Override
+    public String toString() {
+        return String.format("HoldResult{Status=%s, Hold=%s}", status, hold);
+    }
+}
\ No newline at end of file
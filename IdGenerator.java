@@ -0,0 +1,26 @@
+/**
+ * IdGenerator hands out the ids of new students, books, borrow records and
+ * holds. LibraryManager uses a TimeOrderedIdGenerator unless given another.
+ * Implementations must be safe to call from many threads at once and must
+ * never return the same id twice.
+ */
+public interface IdGenerator {
+    enum Kind {
+        STUDENT("STU"),
+        BOOK("BK"),
+        BORROW_RECORD("BR"),
+        HOLD("HD");
+        
+        private final String prefix;
+        
+        Kind(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        public String getPrefix() {
+            return prefix;
+        }
+    }
+    
+    String nextId(Kind kind);
+}
\ No newline at end of file
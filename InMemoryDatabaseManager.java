@@ -1,25 +1,209 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * In-Memory Database Manager - for testing without MySQL server
  * This version stores data in memory instead of requiring MySQL
+ *
+ * It is safe for concurrent use. Entities are kept in concurrent maps and every
+ * mutation of a student or book happens under that entity's lock stripe, so
+ * borrow and return are linearizable while unrelated entities proceed in
+ * parallel. Callers always receive copies, never the stored objects.
+ *
+ * Stored entities are never modified; a change stores a new object stamped
+ * with the write's version from a VersionClock. Reports - statistics, overdue
+ * and due-soon lists and getAllBooks - pin a version and read every map as of
+ * it, without locks, so they never see half of a borrow or return and never
+ * hold up the desk. Replaced versions are dropped once no pinned report can
+ * still read them.
+ *
+ * When opened with a WriteAheadLog, every change is appended to the log under
+ * the same locks that order it in memory and replayed on the next start.
+ * Writers wait for durability after releasing their locks, so with the GROUP
+ * policy concurrent operations share a single fsync.
+ *
+ * With a snapshot file as well, checkpoint() writes a LibrarySnapshot and the
+ * next start replays only the log written after it. The log is then rotated
+ * to drop what the snapshot covers, so its size and the recovery work stay
+ * bounded by the changes since the last checkpoint. The snapshot is mapped
+ * rather than read, and a background thread loads it into the maps. Until it
+ * finishes, lookups and changes by id decode the entity straight from the
+ * mapping, and only whole-library reads wait for the load to complete.
+ *
+ * Loans returned more than ARCHIVE_AFTER_DAYS ago are moved into a columnar
+ * LoanArchive, which keeps long histories out of the object heap. Archived
+ * loans are closed history and can no longer be updated.
  */
-public class InMemoryDatabaseManager {
-    private Map<String, Student> students = new HashMap<>();
-    private Map<String, Book> books = new HashMap<>();
-    private Map<String, BorrowRecord> borrowRecords = new HashMap<>();
-    private static InMemoryDatabaseManager instance;
+public class InMemoryDatabaseManager implements LibraryStorage {
+    private static final Logger LOGGER = Logger.getLogger(InMemoryDatabaseManager.class.getName());
+    private static final int LOCK_STRIPES = 64;
+    // Log position returned when nothing was written; never waited for
+    private static final long NOT_LOGGED = 0;
+    private static final long NOT_APPLIED = -1;
+    // Returned loans older than this move to the columnar archive
+    private static final int ARCHIVE_AFTER_DAYS = 30;
     
-    private InMemoryDatabaseManager() {
-        initializeSampleData();
+    // Stored entities are replaced on change, never mutated, and kept per version for snapshot reads
+    private final VersionClock versions = new VersionClock();
+    private final MultiVersionMap<Student> students = new MultiVersionMap<>(versions);
+    private final MultiVersionMap<Book> books = new MultiVersionMap<>(versions);
+    private final MultiVersionMap<BorrowRecord> borrowRecords = new MultiVersionMap<>(versions);
+    
+    // Lock stripes - operations that need both always take the student stripe before the book stripes,
+    // and operations on several books or students take their stripes in index order
+    private final ReentrantLock[] studentLocks = newStripes();
+    private final ReentrantLock[] bookLocks = newStripes();
+    
+    // Sorted indexes for keyset pagination, mapping sort value + separator + id to the id
+    private final ConcurrentNavigableMap<String, String> booksByTitle = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, String> studentsByName = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, String> bookSortKeys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> studentSortKeys = new ConcurrentHashMap<>();
+    
+    // Secondary indexes for borrow records, guarded by the owning student's lock stripe
+    private final ConcurrentMap<String, NavigableMap<LoanKey, String>> recordsByStudent = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> recordsByBook = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Deque<String>> activeRecordsByLoan = new ConcurrentHashMap<>();
+    // Active loans ordered by due date, so overdue and due-soon queries read only their answer
+    private final ConcurrentNavigableMap<DueKey, String> activeRecordsByDueDate = new ConcurrentSkipListMap<>();
+    
+    // Active holds and their queues, guarded by the book's lock stripe; finished holds are dropped
+    private final MultiVersionMap<Hold> holds = new MultiVersionMap<>(versions);
+    // Per book: waiting holds in the order they were placed, ready holds in the order their copies came back
+    private final ConcurrentMap<String, Deque<String>> waitingHoldsByBook = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Deque<String>> readyHoldsByBook = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> activeHoldsByLoan = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> holdsByStudent = new ConcurrentHashMap<>();
+    
+    // Catalog scans and searches at least this large fan out over the fork-join pool
+    private static final int PARALLEL_THRESHOLD =
+            Integer.getInteger("library.search.parallelThreshold", BookSearchIndex.DEFAULT_PARALLEL_THRESHOLD);
+    
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+    private final TypeaheadIndex typeahead = new TypeaheadIndex();
+    // Closed loan history, guarded per student by the student's lock stripe for moves into it
+    private final LoanArchive archive = new LoanArchive();
+    
+    // Null when the data is kept in memory only
+    private final WriteAheadLog log;
+    private final Path snapshotFile;
+    private final Object checkpointLock = new Object();
+    private ScheduledExecutorService checkpointer;
+    
+    // Snapshot still being loaded into the maps; null once everything is in memory
+    private volatile LibrarySnapshot pendingSnapshot;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile RuntimeException loadFailure;
+    // Deletes seen while loading, so the loader does not bring those entities back
+    private final Set<String> deletedStudents = ConcurrentHashMap.newKeySet();
+    private final Set<String> deletedBooks = ConcurrentHashMap.newKeySet();
+    
+    private InMemoryDatabaseManager(WriteAheadLog log, Path snapshotFile, LibrarySnapshot snapshot) throws IOException {
+        this.log = log;
+        this.snapshotFile = snapshotFile;
+        this.pendingSnapshot = snapshot;
+        if (snapshot != null) {
+            loadHolds(snapshot);
+            long frames = log.replay(new LogReplayer(), snapshot.getLogPosition());
+            LOGGER.info("Opened snapshot of " + snapshot.getStudentCount() + " students, " + snapshot.getBookCount()
+                        + " books and " + snapshot.getBorrowRecordCount() + " borrow records, replayed "
+                        + frames + " log frames written after it");
+        } else {
+            if (log != null && log.replay(new LogReplayer()) > 0) {
+                LOGGER.info("Recovered " + students.size() + " students, " + books.size() + " books and "
+                            + borrowRecords.size() + " borrow records from the write-ahead log");
+            } else {
+                initializeSampleData();
+            }
+            loaded.countDown();
+            archiveClosedLoans();
+        }
     }
     
-    public static InMemoryDatabaseManager getInstance() {
-        if (instance == null) {
-            instance = new InMemoryDatabaseManager();
+    /**
+     * Opens a durable instance backed by the given log file, replaying it first.
+     * An empty or missing log starts with the sample data.
+     */
+    public static InMemoryDatabaseManager open(Path logFile, WriteAheadLog.SyncPolicy policy,
+                                               long syncIntervalMillis) throws IOException {
+        return open(logFile, null, policy, syncIntervalMillis);
+    }
+    
+    /**
+     * Opens a durable instance that also checkpoints to the given snapshot file.
+     * An existing snapshot is mapped and served immediately while it loads in
+     * the background; only the log written after it is replayed.
+     */
+    public static InMemoryDatabaseManager open(Path logFile, Path snapshotFile, WriteAheadLog.SyncPolicy policy,
+                                               long syncIntervalMillis) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(logFile, policy, syncIntervalMillis);
+        try {
+            LibrarySnapshot snapshot = snapshotFile != null && Files.exists(snapshotFile)
+                    ? LibrarySnapshot.open(snapshotFile) : null;
+            InMemoryDatabaseManager manager = new InMemoryDatabaseManager(log, snapshotFile, snapshot);
+            manager.startLoading();
+            return manager;
+        } catch (IOException | RuntimeException ex) {
+            log.close();
+            throw ex;
+        }
+    }
+    
+    // Lazy, thread-safe singleton via the holder idiom
+    private static class InstanceHolder {
+        private static final InMemoryDatabaseManager INSTANCE = createDefault();
+    }
+    
+    // Persistence is enabled with -Dlibrary.wal.file=<path>, optionally -Dlibrary.wal.sync=GROUP|PER_OPERATION|INTERVAL
+    // and -Dlibrary.snapshot.file=<path> with -Dlibrary.snapshot.intervalMinutes=<n> for periodic checkpoints
+    private static InMemoryDatabaseManager createDefault() {
+        String logFile = System.getProperty("library.wal.file");
+        try {
+            if (logFile == null || logFile.isEmpty()) {
+                return new InMemoryDatabaseManager(null, null, null);
+            }
+            WriteAheadLog.SyncPolicy policy = WriteAheadLog.SyncPolicy.valueOf(
+                    System.getProperty("library.wal.sync", WriteAheadLog.SyncPolicy.GROUP.name()));
+            long interval = Long.getLong("library.wal.intervalMillis", 100);
+            String snapshotFile = System.getProperty("library.snapshot.file");
+            if (snapshotFile == null || snapshotFile.isEmpty()) {
+                return open(Paths.get(logFile), policy, interval);
+            }
+            InMemoryDatabaseManager manager = open(Paths.get(logFile), Paths.get(snapshotFile), policy, interval);
+            long checkpointMinutes = Long.getLong("library.snapshot.intervalMinutes", 0);
+            if (checkpointMinutes > 0) {
+                manager.scheduleCheckpoints(TimeUnit.MINUTES.toMillis(checkpointMinutes));
+            }
+            return manager;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open write-ahead log " + logFile, ex);
         }
-        return instance;
+    }
+    
+    public static InMemoryDatabaseManager getInstance() {
+        return InstanceHolder.INSTANCE;
     }
     
     private void initializeSampleData() {
@@ -28,9 +212,9 @@ public class InMemoryDatabaseManager {
         Student s2 = new Student("STU002", "Bob Smith", "bob@email.com", "456 Oak Ave", "555-0102", 5);
         Student s3 = new Student("STU003", "Carol Davis", "carol@email.com", "789 Pine Rd", "555-0103", 5);
         
-        students.put(s1.getStudentId(), s1);
-        students.put(s2.getStudentId(), s2);
-        students.put(s3.getStudentId(), s3);
+        addStudent(s1);
+        addStudent(s2);
+        addStudent(s3);
         
         // Add sample books
         Book b1 = new Book("BK001", "Java Programming", "John Doe", "978-0134685991", "Programming", 3);
@@ -39,117 +223,1611 @@ public class InMemoryDatabaseManager {
         Book b4 = new Book("BK004", "To Kill a Mockingbird", "Harper Lee", "978-0061120084", "Literature", 4);
         Book b5 = new Book("BK005", "1984", "George Orwell", "978-0451524935", "Fiction", 3);
         
-        books.put(b1.getBookId(), b1);
-        books.put(b2.getBookId(), b2);
-        books.put(b3.getBookId(), b3);
-        books.put(b4.getBookId(), b4);
-        books.put(b5.getBookId(), b5);
+        addBook(b1);
+        addBook(b2);
+        addBook(b3);
+        addBook(b4);
+        addBook(b5);
     }
     
     // Student operations
     public boolean addStudent(Student student) {
-        if (students.containsKey(student.getStudentId())) {
+        long position = insertStudent(student);
+        if (position == NOT_APPLIED) {
             return false;
         }
-        students.put(student.getStudentId(), student);
+        awaitDurable(position);
         return true;
     }
     
+    // Inserts without waiting for the log, so bulk inserts can wait once
+    private long insertStudent(Student student) {
+        ReentrantLock lock = stripe(studentLocks, student.getStudentId());
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeStudent(student.getStudentId());
+            if (students.containsKey(student.getStudentId())) {
+                return NOT_APPLIED;
+            }
+            installStudent(student, version);
+            return logged(batch -> batch.putStudent(student));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
+        }
+    }
+    
     public boolean updateStudent(Student student) {
-        if (!students.containsKey(student.getStudentId())) {
-            return false;
+        long position;
+        ReentrantLock lock = stripe(studentLocks, student.getStudentId());
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeStudent(student.getStudentId());
+            if (!students.containsKey(student.getStudentId())) {
+                return false;
+            }
+            installStudent(student, version);
+            position = logged(batch -> batch.putStudent(student));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
         }
-        students.put(student.getStudentId(), student);
+        awaitDurable(position);
         return true;
     }
     
     public boolean deleteStudent(String studentId) {
-        return students.remove(studentId) != null;
+        long position;
+        ReentrantLock lock = stripe(studentLocks, studentId);
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeStudent(studentId);
+            if (!uninstallStudent(studentId, version)) {
+                return false;
+            }
+            position = logged(batch -> batch.deleteStudent(studentId));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return true;
+    }
+    
+    // Called under the student's lock stripe, or during replay and loading at VersionClock.BASE
+    private void installStudent(Student student, long version) {
+        students.put(student.getStudentId(), new Student(student), version);
+        indexStudent(student);
+    }
+    
+    private boolean uninstallStudent(String studentId, long version) {
+        if (pendingSnapshot != null) {
+            deletedStudents.add(studentId);
+        }
+        if (students.remove(studentId, version) == null) {
+            return false;
+        }
+        String key = studentSortKeys.remove(studentId);
+        if (key != null) {
+            studentsByName.remove(key);
+        }
+        return true;
     }
     
     public Student getStudent(String studentId) {
-        return students.get(studentId);
+        ReentrantLock lock = stripe(studentLocks, studentId);
+        lock.lock();
+        try {
+            materializeStudent(studentId);
+            Student student = students.get(studentId);
+            return student != null ? new Student(student) : null;
+        } finally {
+            lock.unlock();
+        }
     }
     
     public List<Student> getAllStudents() {
-        return new ArrayList<>(students.values());
+        return streamAllStudents().collect(Collectors.toList());
     }
     
     // Book operations
     public boolean addBook(Book book) {
-        if (books.containsKey(book.getBookId())) {
+        long position = insertBook(book);
+        if (position == NOT_APPLIED) {
             return false;
         }
-        books.put(book.getBookId(), book);
+        awaitDurable(position);
         return true;
     }
     
+    // Inserts without waiting for the log, so bulk inserts can wait once
+    private long insertBook(Book book) {
+        ReentrantLock lock = stripe(bookLocks, book.getBookId());
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeBook(book.getBookId());
+            if (books.containsKey(book.getBookId())) {
+                return NOT_APPLIED;
+            }
+            installBook(book, version);
+            return logged(batch -> batch.putBook(book));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
+        }
+    }
+    
     public boolean updateBook(Book book) {
-        if (!books.containsKey(book.getBookId())) {
-            return false;
+        long position;
+        ReentrantLock lock = stripe(bookLocks, book.getBookId());
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeBook(book.getBookId());
+            if (!books.containsKey(book.getBookId())) {
+                return false;
+            }
+            installBook(book, version);
+            position = logged(batch -> batch.putBook(book));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
         }
-        books.put(book.getBookId(), book);
+        awaitDurable(position);
         return true;
     }
     
     public boolean deleteBook(String bookId) {
-        return books.remove(bookId) != null;
+        long position;
+        ReentrantLock lock = stripe(bookLocks, bookId);
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeBook(bookId);
+            if (!uninstallBook(bookId, version)) {
+                return false;
+            }
+            position = logged(batch -> batch.deleteBook(bookId));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return true;
+    }
+    
+    // Called under the book's lock stripe, or during replay and loading at VersionClock.BASE
+    private void installBook(Book book, long version) {
+        books.put(book.getBookId(), new Book(book), version);
+        indexBook(book);
+        searchIndex.index(book);
+        typeahead.index(book);
+    }
+    
+    private boolean uninstallBook(String bookId, long version) {
+        if (pendingSnapshot != null) {
+            deletedBooks.add(bookId);
+        }
+        if (books.remove(bookId, version) == null) {
+            return false;
+        }
+        String key = bookSortKeys.remove(bookId);
+        if (key != null) {
+            booksByTitle.remove(key);
+        }
+        searchIndex.remove(bookId);
+        typeahead.remove(bookId);
+        return true;
     }
     
     public Book getBook(String bookId) {
-        return books.get(bookId);
+        ReentrantLock lock = stripe(bookLocks, bookId);
+        lock.lock();
+        try {
+            materializeBook(bookId);
+            Book book = books.get(bookId);
+            return book != null ? new Book(book) : null;
+        } finally {
+            lock.unlock();
+        }
     }
     
+    // Reads one pinned version without locks, so every book is as of the same moment
     public List<Book> getAllBooks() {
-        return new ArrayList<>(books.values());
+        awaitLoaded();
+        try (VersionClock.ReadView view = versions.pin()) {
+            return books.values(view.getVersion()).map(Book::new).collect(Collectors.toList());
+        }
     }
     
     public List<Book> searchBooks(String keyword) {
-        return books.values().stream()
-                .filter(book -> book.getTitle().toLowerCase().contains(keyword.toLowerCase()) ||
-                               book.getAuthor().toLowerCase().contains(keyword.toLowerCase()) ||
-                               (book.getIsbn() != null && book.getIsbn().contains(keyword)))
+        awaitLoaded();
+        // Copying a broad query's books is split up too; the ordered collect keeps the ranking
+        List<String> rankedIds = searchIndex.search(keyword);
+        return streamIds(rankedIds, rankedIds.size())
+                .map(this::getBook)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
     
+    // Titles and authors starting with the prefix, most borrowed first; includes books still in the snapshot
+    public List<String> autocomplete(String prefix, int limit) {
+        awaitLoaded();
+        return typeahead.complete(prefix, limit);
+    }
+    
+    // Filters compare dictionary codes, ignoring case and accents like the MySQL query; unknown values match no book
+    public List<Book> getBooksByGenre(String genre) {
+        int[] genreCodes = CatalogDictionary.GENRES.findMatching(genre);
+        return filterBooksByCode(genreCodes, Book::getGenreCode);
+    }
+    
+    public List<Book> getBooksByAuthor(String author) {
+        int[] authorCodes = CatalogDictionary.AUTHORS.findMatching(author);
+        return filterBooksByCode(authorCodes, Book::getAuthorCode);
+    }
+    
+    private List<Book> filterBooksByCode(int[] codes, ToIntFunction<Book> codeOf) {
+        if (codes.length == 0) {
+            return new ArrayList<>();
+        }
+        awaitLoaded();
+        // Walk the title index so results come back in the same order as the MySQL query
+        return streamIds(booksByTitle.values(), books.size())
+                .filter(bookId -> {
+                    Book book = books.get(bookId);
+                    return book != null && matchesAny(codeOf.applyAsInt(book), codes);
+                })
+                .map(this::getBook)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    private static boolean matchesAny(int code, int[] codes) {
+        for (int candidate : codes) {
+            if (candidate == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Streams the ids in order, splitting the work over the fork-join pool
+     * once there are PARALLEL_THRESHOLD of them. The collections passed in are
+     * ordered, so collecting the stream keeps their order either way. The
+     * count is passed in because sizing a skip list view walks all of it.
+     */
+    private static Stream<String> streamIds(Collection<String> ids, int count) {
+        return count >= PARALLEL_THRESHOLD ? ids.parallelStream() : ids.stream();
+    }
+    
     // Borrow record operations
+    // Stored records are never mutated in place - changes replace the map entry
     public boolean addBorrowRecord(BorrowRecord record) {
-        borrowRecords.put(record.getRecordId(), record);
+        long position;
+        ReentrantLock lock = stripe(studentLocks, record.getStudentId());
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeRecord(record.getRecordId());
+            BorrowRecord stored = new BorrowRecord(record);
+            storeRecord(stored, version);
+            position = logged(batch -> batch.putBorrowRecord(stored));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
+        }
+        awaitDurable(position);
         return true;
     }
     
     public boolean updateBorrowRecord(BorrowRecord record) {
-        if (!borrowRecords.containsKey(record.getRecordId())) {
-            return false;
+        long position;
+        ReentrantLock lock = stripe(studentLocks, record.getStudentId());
+        lock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeRecord(record.getRecordId());
+            if (!borrowRecords.containsKey(record.getRecordId())) {
+                return false;
+            }
+            BorrowRecord stored = new BorrowRecord(record);
+            storeRecord(stored, version);
+            position = logged(batch -> batch.putBorrowRecord(stored));
+        } finally {
+            versions.endWrite(version);
+            lock.unlock();
         }
-        borrowRecords.put(record.getRecordId(), record);
+        awaitDurable(position);
         return true;
     }
     
     public List<BorrowRecord> getBorrowRecordsByStudent(String studentId) {
-        return borrowRecords.values().stream()
-                .filter(record -> record.getStudentId().equals(studentId))
+        awaitLoaded();
+        ReentrantLock lock = stripe(studentLocks, studentId);
+        lock.lock();
+        try {
+            NavigableMap<LoanKey, String> history = recordsByStudent.get(studentId);
+            int[] archivedRows = archive.rowsForStudent(studentId);
+            List<BorrowRecord> records = new ArrayList<>((history != null ? history.size() : 0) + archivedRows.length);
+            if (history != null) {
+                for (String recordId : history.values()) {
+                    records.add(new BorrowRecord(borrowRecords.get(recordId)));
+                }
+            }
+            if (archivedRows.length > 0) {
+                for (int row : archivedRows) {
+                    records.add(archive.toBorrowRecord(row));
+                }
+                records.sort((r1, r2) -> r2.getBorrowDate().compareTo(r1.getBorrowDate()));
+            }
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public List<BorrowRecord> getBorrowRecordsByBook(String bookId) {
+        awaitLoaded();
+        Set<String> recordIds = recordsByBook.getOrDefault(bookId, Collections.emptySet());
+        Stream<BorrowRecord> archived = Arrays.stream(archive.rowsForBook(bookId)).mapToObj(archive::toBorrowRecord);
+        return Stream.concat(recordIds.stream().map(borrowRecords::get).filter(Objects::nonNull).map(BorrowRecord::new), archived)
                 .sorted((r1, r2) -> r2.getBorrowDate().compareTo(r1.getBorrowDate()))
                 .collect(Collectors.toList());
     }
     
     public List<BorrowRecord> getOverdueRecords() {
-        return borrowRecords.values().stream()
-                .filter(record -> !record.isReturned() && record.isOverdue())
-                .collect(Collectors.toList());
+        awaitLoaded();
+        try (VersionClock.ReadView view = versions.pin()) {
+            return overdueRecords(view.getVersion());
+        }
+    }
+    
+    // Loans due before today; recordId "" sorts first, so today's loans are excluded
+    private List<BorrowRecord> overdueRecords(long readVersion) {
+        return copyRecords(activeRecordsByDueDate.headMap(new DueKey(LocalDate.now().toEpochDay(), ""), false), readVersion);
+    }
+    
+    public List<BorrowRecord> getRecordsDueWithin(int days) {
+        awaitLoaded();
+        long today = LocalDate.now().toEpochDay();
+        try (VersionClock.ReadView view = versions.pin()) {
+            return copyRecords(activeRecordsByDueDate.subMap(new DueKey(today, ""), true,
+                                                             new DueKey(today + Math.max(days, 0) + 1, ""), false),
+                               view.getVersion());
+        }
+    }
+    
+    // Keeps the entries that match the record as it was at the pinned version, which skips newer and retired ones
+    private List<BorrowRecord> copyRecords(Map<DueKey, String> range, long readVersion) {
+        List<BorrowRecord> records = new ArrayList<>();
+        for (Map.Entry<DueKey, String> entry : range.entrySet()) {
+            BorrowRecord record = borrowRecords.get(entry.getValue(), readVersion);
+            if (record != null && !record.isReturned() && record.getDueDate().toEpochDay() == entry.getKey().dueEpochDay) {
+                records.add(new BorrowRecord(record));
+            }
+        }
+        return records;
+    }
+    
+    // Keyset pagination
+    public Page<Book> getBooksPage(String pageToken, int pageSize) {
+        return page(booksByTitle, pageToken, pageSize, this::getBook,
+                    book -> Page.encodeToken(book.getTitle(), book.getBookId()));
+    }
+    
+    public Page<Student> getStudentsPage(String pageToken, int pageSize) {
+        return page(studentsByName, pageToken, pageSize, this::getStudent,
+                    student -> Page.encodeToken(student.getStudentName(), student.getStudentId()));
+    }
+    
+    private <T> Page<T> page(NavigableMap<String, String> index, String pageToken, int pageSize,
+                             Function<String, T> loader, Function<T, String> tokenOf) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        awaitLoaded();
+        String[] after = Page.decodeToken(pageToken);
+        // Seek straight to the position after the last returned key, so deep pages cost the same as the first
+        NavigableMap<String, String> tail = after == null ? index : index.tailMap(sortKey(after[0], after[1]), false);
+        List<T> items = new ArrayList<>(pageSize);
+        for (String id : tail.values()) {
+            T item = loader.apply(id);
+            if (item == null) {
+                continue; // deleted while paging
+            }
+            if (items.size() == pageSize) {
+                return new Page<>(items, tokenOf.apply(items.get(items.size() - 1)));
+            }
+            items.add(item);
+        }
+        return new Page<>(items, null);
+    }
+    
+    // Called under the book's lock stripe
+    private void indexBook(Book book) {
+        String key = sortKey(book.getTitle(), book.getBookId());
+        String oldKey = bookSortKeys.put(book.getBookId(), key);
+        if (oldKey != null) {
+            booksByTitle.remove(oldKey);
+        }
+        booksByTitle.put(key, book.getBookId());
+    }
+    
+    // Called under the student's lock stripe
+    private void indexStudent(Student student) {
+        String key = sortKey(student.getStudentName(), student.getStudentId());
+        String oldKey = studentSortKeys.put(student.getStudentId(), key);
+        if (oldKey != null) {
+            studentsByName.remove(oldKey);
+        }
+        studentsByName.put(key, student.getStudentId());
+    }
+    
+    private static String sortKey(String sortValue, String id) {
+        return (sortValue != null ? sortValue : "") + Page.KEY_SEPARATOR + id;
+    }
+    
+    // Streaming operations
+    public Stream<Book> streamAllBooks() {
+        awaitLoaded();
+        return books.keys().map(this::getBook).filter(Objects::nonNull);
+    }
+    
+    public Stream<Book> streamAvailableBooks() {
+        return streamAllBooks().filter(Book::isAvailable);
+    }
+    
+    public Stream<Student> streamAllStudents() {
+        awaitLoaded();
+        return students.keys().map(this::getStudent).filter(Objects::nonNull);
+    }
+    
+    public Stream<BorrowRecord> streamBorrowRecordsByStudent(String studentId) {
+        return getBorrowRecordsByStudent(studentId).stream();
+    }
+    
+    public Stream<BorrowRecord> streamActiveBorrowRecordsByStudent(String studentId) {
+        return streamBorrowRecordsByStudent(studentId).filter(record -> !record.isReturned());
+    }
+    
+    // Bulk operations
+    // Bulk inserts wait for the log once, after the last row
+    public boolean[] addBooks(List<Book> bookList) {
+        boolean[] inserted = new boolean[bookList.size()];
+        long lastPosition = NOT_LOGGED;
+        for (int i = 0; i < bookList.size(); i++) {
+            long position = insertBook(bookList.get(i));
+            inserted[i] = position != NOT_APPLIED;
+            lastPosition = Math.max(lastPosition, position);
+        }
+        awaitDurable(lastPosition);
+        return inserted;
+    }
+    
+    public boolean[] addStudents(List<Student> studentList) {
+        boolean[] inserted = new boolean[studentList.size()];
+        long lastPosition = NOT_LOGGED;
+        for (int i = 0; i < studentList.size(); i++) {
+            long position = insertStudent(studentList.get(i));
+            inserted[i] = position != NOT_APPLIED;
+            lastPosition = Math.max(lastPosition, position);
+        }
+        awaitDurable(lastPosition);
+        return inserted;
+    }
+    
+    // Atomic loan operations
+    public LoanResult borrowBook(BorrowRecord record) {
+        long position;
+        ReentrantLock studentLock = stripe(studentLocks, record.getStudentId());
+        ReentrantLock bookLock = stripe(bookLocks, record.getBookId());
+        studentLock.lock();
+        bookLock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeStudent(record.getStudentId());
+            materializeBook(record.getBookId());
+            Student stored = students.get(record.getStudentId());
+            if (stored == null) {
+                return LoanResult.failure(LoanResult.Status.STUDENT_NOT_FOUND);
+            }
+            if (!stored.canBorrowMore()) {
+                return LoanResult.failure(LoanResult.Status.BORROW_LIMIT_REACHED);
+            }
+            Book book = books.get(record.getBookId());
+            if (book == null) {
+                return LoanResult.failure(LoanResult.Status.BOOK_NOT_FOUND);
+            }
+            // A ready hold already has a copy set aside for this student
+            Hold hold = activeHold(record.getStudentId(), record.getBookId());
+            boolean reserved = holdsCopy(hold);
+            // Change copies, so readers of the stored versions never see a half-applied loan
+            Book borrowed = new Book(book);
+            if (!reserved && !borrowed.borrowBook()) {
+                return LoanResult.failure(LoanResult.Status.BOOK_UNAVAILABLE);
+            }
+            Student student = new Student(stored);
+            student.borrowBook();
+            BorrowRecord loan = new BorrowRecord(record);
+            students.put(student.getStudentId(), student, version);
+            if (!reserved) {
+                books.put(borrowed.getBookId(), borrowed, version);
+            }
+            storeRecord(loan, version);
+            Hold fulfilled = hold != null && (reserved || !hold.isReady())
+                    ? finishHold(hold, Hold.Status.FULFILLED, version) : null;
+            position = logged(batch -> {
+                batch.putStudent(student).putBorrowRecord(loan);
+                if (!reserved) {
+                    batch.putBook(borrowed);
+                }
+                if (fulfilled != null) {
+                    batch.putHold(fulfilled);
+                }
+            });
+        } finally {
+            versions.endWrite(version);
+            bookLock.unlock();
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return LoanResult.success(record);
+    }
+    
+    public LoanResult returnBook(String studentId, String bookId) {
+        // The active-loan index is complete only once the snapshot is loaded
+        awaitLoaded();
+        long position;
+        BorrowRecord returned;
+        Hold promoted;
+        ReentrantLock studentLock = stripe(studentLocks, studentId);
+        ReentrantLock bookLock = stripe(bookLocks, bookId);
+        studentLock.lock();
+        bookLock.lock();
+        long version = versions.beginWrite();
+        try {
+            BorrowRecord active = findActiveRecord(studentId, bookId);
+            if (active == null) {
+                return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+            }
+            returned = new BorrowRecord(active);
+            returned.returnBook();
+            storeRecord(returned, version);
+            
+            // The copy goes to the next hold in line, or back on the shelf if nobody is waiting
+            promoted = promoteNextHold(bookId, version);
+            Book storedBook = promoted == null ? books.get(bookId) : null;
+            Book book = storedBook != null ? new Book(storedBook) : null;
+            if (book != null) {
+                book.returnBook();
+                books.put(bookId, book, version);
+            }
+            Student storedStudent = students.get(studentId);
+            Student student = storedStudent != null ? new Student(storedStudent) : null;
+            if (student != null) {
+                student.returnBook();
+                students.put(studentId, student, version);
+            }
+            Hold promotedHold = promoted;
+            position = logged(batch -> {
+                batch.putBorrowRecord(returned);
+                if (book != null) {
+                    batch.putBook(book);
+                }
+                if (student != null) {
+                    batch.putStudent(student);
+                }
+                if (promotedHold != null) {
+                    batch.putHold(promotedHold);
+                }
+            });
+        } finally {
+            versions.endWrite(version);
+            bookLock.unlock();
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return LoanResult.success(new BorrowRecord(returned), promoted != null ? new Hold(promoted) : null);
+    }
+    
+    public LoanResult renewBook(String studentId, String bookId, int additionalDays, int maxDaysOverdue) {
+        awaitLoaded();
+        long position;
+        BorrowRecord renewed;
+        // Loans of a student are only changed under that student's stripe
+        ReentrantLock studentLock = stripe(studentLocks, studentId);
+        studentLock.lock();
+        long version = versions.beginWrite();
+        try {
+            BorrowRecord record = findActiveRecord(studentId, bookId);
+            if (record == null) {
+                return LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN);
+            }
+            if (record.getDaysOverdue() > maxDaysOverdue) {
+                return LoanResult.failure(LoanResult.Status.TOO_OVERDUE);
+            }
+            renewed = new BorrowRecord(record.getRecordId(), studentId, bookId, record.getBorrowDate(),
+                                       record.getDueDate().plusDays(additionalDays), null, false, 0.0);
+            storeRecord(renewed, version);
+            position = logged(batch -> batch.putBorrowRecord(renewed));
+        } finally {
+            versions.endWrite(version);
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return LoanResult.success(new BorrowRecord(renewed));
+    }
+    
+    /**
+     * Checks out several books for one student as one write: the student's
+     * stripe and every book stripe are taken once, the limit is checked
+     * against one copy of the student, and all changes go to the log as a
+     * single batch, so the whole stack waits for one durable write. Items
+     * that fail do not stop the others; the result has one entry per record.
+     */
+    public List<LoanResult> borrowBooks(List<BorrowRecord> records) {
+        List<LoanResult> results = new ArrayList<>(records.size());
+        if (records.isEmpty()) {
+            return results;
+        }
+        String studentId = records.get(0).getStudentId();
+        long position = NOT_LOGGED;
+        ReentrantLock studentLock = stripe(studentLocks, studentId);
+        List<ReentrantLock> bookStripes = stripes(bookLocks, records.stream().map(BorrowRecord::getBookId));
+        studentLock.lock();
+        bookStripes.forEach(ReentrantLock::lock);
+        long version = versions.beginWrite();
+        try {
+            materializeStudent(studentId);
+            Student stored = students.get(studentId);
+            if (stored == null) {
+                return new ArrayList<>(Collections.nCopies(records.size(), LoanResult.failure(LoanResult.Status.STUDENT_NOT_FOUND)));
+            }
+            // Work on copies and store each changed entity once, as of the batch's version
+            Student student = new Student(stored);
+            Map<String, Book> borrowedBooks = new LinkedHashMap<>();
+            List<BorrowRecord> loans = new ArrayList<>();
+            List<Hold> fulfilled = new ArrayList<>();
+            for (BorrowRecord record : records) {
+                if (!record.getStudentId().equals(studentId)) {
+                    results.add(LoanResult.failure(LoanResult.Status.FAILED));
+                    continue;
+                }
+                materializeBook(record.getBookId());
+                Book book = borrowedBooks.get(record.getBookId());
+                if (book == null) {
+                    Book storedBook = books.get(record.getBookId());
+                    book = storedBook != null ? new Book(storedBook) : null;
+                }
+                Hold hold = activeHold(studentId, record.getBookId());
+                boolean reserved = holdsCopy(hold);
+                if (book == null) {
+                    results.add(LoanResult.failure(LoanResult.Status.BOOK_NOT_FOUND));
+                } else if (!reserved && !book.isAvailable()) {
+                    results.add(LoanResult.failure(LoanResult.Status.BOOK_UNAVAILABLE));
+                } else if (!student.canBorrowMore()) {
+                    results.add(LoanResult.failure(LoanResult.Status.BORROW_LIMIT_REACHED));
+                } else {
+                    if (!reserved) {
+                        book.borrowBook();
+                        borrowedBooks.put(book.getBookId(), book);
+                    }
+                    if (hold != null && (reserved || !hold.isReady())) {
+                        // Finished now, so a second copy of the same book in the batch does not use it again
+                        fulfilled.add(finishHold(hold, Hold.Status.FULFILLED, version));
+                    }
+                    student.borrowBook();
+                    loans.add(new BorrowRecord(record));
+                    results.add(LoanResult.success(record));
+                }
+            }
+            if (!loans.isEmpty()) {
+                students.put(studentId, student, version);
+                borrowedBooks.values().forEach(book -> books.put(book.getBookId(), book, version));
+                loans.forEach(loan -> storeRecord(loan, version));
+                position = logged(batch -> {
+                    batch.putStudent(student);
+                    borrowedBooks.values().forEach(batch::putBook);
+                    loans.forEach(batch::putBorrowRecord);
+                    fulfilled.forEach(batch::putHold);
+                });
+            }
+        } finally {
+            versions.endWrite(version);
+            unlockAll(bookStripes);
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return results;
+    }
+    
+    /**
+     * Returns several books for one student as one write, closing the
+     * student's oldest active loan of each book. Like borrowBooks, the locks
+     * are taken once and the changes are logged as a single batch.
+     */
+    public List<LoanResult> returnBooks(String studentId, List<String> bookIds) {
+        List<LoanResult> results = new ArrayList<>(bookIds.size());
+        if (bookIds.isEmpty()) {
+            return results;
+        }
+        awaitLoaded();
+        long position = NOT_LOGGED;
+        ReentrantLock studentLock = stripe(studentLocks, studentId);
+        List<ReentrantLock> bookStripes = stripes(bookLocks, bookIds.stream());
+        studentLock.lock();
+        bookStripes.forEach(ReentrantLock::lock);
+        long version = versions.beginWrite();
+        try {
+            Map<String, Book> returnedBooks = new LinkedHashMap<>();
+            List<BorrowRecord> closed = new ArrayList<>();
+            List<Hold> promotedHolds = new ArrayList<>();
+            for (String bookId : bookIds) {
+                BorrowRecord active = findActiveRecord(studentId, bookId);
+                if (active == null) {
+                    results.add(LoanResult.failure(LoanResult.Status.NO_ACTIVE_LOAN));
+                    continue;
+                }
+                BorrowRecord returned = new BorrowRecord(active);
+                returned.returnBook();
+                // Stored now so a second copy of the same book in the batch closes the next loan
+                storeRecord(returned, version);
+                closed.add(returned);
+                
+                Hold promoted = promoteNextHold(bookId, version);
+                results.add(LoanResult.success(new BorrowRecord(returned), promoted != null ? new Hold(promoted) : null));
+                if (promoted != null) {
+                    promotedHolds.add(promoted);
+                    continue;
+                }
+                Book book = returnedBooks.get(bookId);
+                if (book == null) {
+                    Book storedBook = books.get(bookId);
+                    book = storedBook != null ? new Book(storedBook) : null;
+                }
+                if (book != null) {
+                    book.returnBook();
+                    returnedBooks.put(bookId, book);
+                }
+            }
+            if (!closed.isEmpty()) {
+                returnedBooks.values().forEach(book -> books.put(book.getBookId(), book, version));
+                Student storedStudent = students.get(studentId);
+                Student student = storedStudent != null ? new Student(storedStudent) : null;
+                if (student != null) {
+                    closed.forEach(record -> student.returnBook());
+                    students.put(studentId, student, version);
+                }
+                position = logged(batch -> {
+                    closed.forEach(batch::putBorrowRecord);
+                    returnedBooks.values().forEach(batch::putBook);
+                    promotedHolds.forEach(batch::putHold);
+                    if (student != null) {
+                        batch.putStudent(student);
+                    }
+                });
+            }
+        } finally {
+            versions.endWrite(version);
+            unlockAll(bookStripes);
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return results;
+    }
+    
+    // Hold queues
+    /**
+     * Queues the student for the book. Holds are only taken on books with no
+     * copy on the shelf, and a student holds each book at most once.
+     */
+    public HoldResult placeHold(Hold hold) {
+        long position;
+        Hold placed;
+        ReentrantLock studentLock = stripe(studentLocks, hold.getStudentId());
+        ReentrantLock bookLock = stripe(bookLocks, hold.getBookId());
+        studentLock.lock();
+        bookLock.lock();
+        long version = versions.beginWrite();
+        try {
+            materializeStudent(hold.getStudentId());
+            materializeBook(hold.getBookId());
+            if (!students.containsKey(hold.getStudentId())) {
+                return HoldResult.failure(HoldResult.Status.STUDENT_NOT_FOUND);
+            }
+            Book book = books.get(hold.getBookId());
+            if (book == null) {
+                return HoldResult.failure(HoldResult.Status.BOOK_NOT_FOUND);
+            }
+            if (book.isAvailable()) {
+                return HoldResult.failure(HoldResult.Status.BOOK_AVAILABLE);
+            }
+            if (activeHold(hold.getStudentId(), hold.getBookId()) != null) {
+                return HoldResult.failure(HoldResult.Status.ALREADY_HOLDING);
+            }
+            placed = new Hold(hold);
+            storeHold(placed, version);
+            position = logged(batch -> batch.putHold(placed));
+        } finally {
+            versions.endWrite(version);
+            bookLock.unlock();
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return HoldResult.success(new Hold(placed));
+    }
+    
+    // Cancelling a ready hold passes its copy on to the next in line
+    public HoldResult cancelHold(String studentId, String bookId) {
+        long position;
+        Hold cancelled;
+        ReentrantLock studentLock = stripe(studentLocks, studentId);
+        ReentrantLock bookLock = stripe(bookLocks, bookId);
+        studentLock.lock();
+        bookLock.lock();
+        long version = versions.beginWrite();
+        try {
+            Hold hold = activeHold(studentId, bookId);
+            if (hold == null) {
+                return HoldResult.failure(HoldResult.Status.NO_HOLD);
+            }
+            cancelled = finishHold(hold, Hold.Status.CANCELLED, version);
+            Consumer<WriteAheadLog.Batch> passedOn = hold.isReady() ? passOnCopy(bookId, version) : batch -> { };
+            position = logged(batch -> {
+                batch.putHold(cancelled);
+                passedOn.accept(batch);
+            });
+        } finally {
+            versions.endWrite(version);
+            bookLock.unlock();
+            studentLock.unlock();
+        }
+        awaitDurable(position);
+        return HoldResult.success(new Hold(cancelled));
+    }
+    
+    /**
+     * Expires the ready holds whose pickup window ended before asOf and
+     * passes each copy on to the next hold or back to the shelf. Ready
+     * holds are queued in the order their windows end, so each book only
+     * looks at the holds that expire. Returns how many holds expired.
+     */
+    public int expireHolds(LocalDate asOf) {
+        int expired = 0;
+        long position = NOT_LOGGED;
+        for (String bookId : new ArrayList<>(readyHoldsByBook.keySet())) {
+            ReentrantLock bookLock = stripe(bookLocks, bookId);
+            bookLock.lock();
+            long version = versions.beginWrite();
+            try {
+                List<Consumer<WriteAheadLog.Batch>> changes = new ArrayList<>();
+                Hold head;
+                while ((head = firstReadyHold(bookId)) != null && head.isPickupExpired(asOf)) {
+                    Hold lapsed = finishHold(head, Hold.Status.EXPIRED, version);
+                    changes.add(batch -> batch.putHold(lapsed));
+                    changes.add(passOnCopy(bookId, version));
+                    expired++;
+                }
+                if (!changes.isEmpty()) {
+                    position = logged(batch -> changes.forEach(change -> change.accept(batch)));
+                }
+            } finally {
+                versions.endWrite(version);
+                bookLock.unlock();
+            }
+        }
+        // Group commit makes the last position cover every earlier one
+        awaitDurable(position);
+        if (expired > 0) {
+            LOGGER.info("Expired " + expired + " holds not picked up by " + asOf);
+        }
+        return expired;
+    }
+    
+    private Hold firstReadyHold(String bookId) {
+        Deque<String> ready = readyHoldsByBook.get(bookId);
+        String holdId = ready != null ? ready.peekFirst() : null;
+        return holdId != null ? holds.get(holdId) : null;
+    }
+    
+    /**
+     * A freed reserved copy goes to the next hold in line, or back on the
+     * shelf. Called under the book's lock stripe; returns the log entry for
+     * the change.
+     */
+    private Consumer<WriteAheadLog.Batch> passOnCopy(String bookId, long version) {
+        Hold promoted = promoteNextHold(bookId, version);
+        if (promoted != null) {
+            return batch -> batch.putHold(promoted);
+        }
+        Book stored = books.get(bookId);
+        if (stored == null) {
+            return batch -> { };
+        }
+        Book book = new Book(stored);
+        book.returnBook();
+        books.put(bookId, book, version);
+        return batch -> batch.putBook(book);
+    }
+    
+    // Ready holds first, then the waiting ones in queue order
+    public List<Hold> getHoldsByBook(String bookId) {
+        List<Hold> queue = new ArrayList<>();
+        for (ConcurrentMap<String, Deque<String>> queues : List.of(readyHoldsByBook, waitingHoldsByBook)) {
+            Deque<String> holdIds = queues.get(bookId);
+            if (holdIds != null) {
+                for (String holdId : holdIds) {
+                    Hold hold = holds.get(holdId);
+                    if (hold != null) {
+                        queue.add(new Hold(hold));
+                    }
+                }
+            }
+        }
+        return queue;
+    }
+    
+    public List<Hold> getHoldsByStudent(String studentId) {
+        Set<String> holdIds = holdsByStudent.getOrDefault(studentId, Collections.emptySet());
+        return holdIds.stream().map(holds::get).filter(Objects::nonNull).map(Hold::new)
+                      .sorted(Comparator.comparing(Hold::getPlacedAt)).collect(Collectors.toList());
+    }
+    
+    /**
+     * Brings the fines of one chunk of overdue active loans up to asOf. The
+     * chunk is read from the due-date index after the token, its students'
+     * stripes are taken once in index order, and the changed loans are stored
+     * under one version and logged as one batch. Loans whose fine is already
+     * current are left alone, so repeating a chunk writes nothing.
+     */
+    public Page<BorrowRecord> accrueFines(LocalDate asOf, String pageToken, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        awaitLoaded();
+        String[] after = Page.decodeToken(pageToken);
+        DueKey end = new DueKey(asOf.toEpochDay(), "");
+        DueKey start = after != null ? new DueKey(LocalDate.parse(after[0]).toEpochDay(), after[1]) : null;
+        if (start != null && start.compareTo(end) >= 0) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        NavigableMap<DueKey, String> overdue = start == null ? activeRecordsByDueDate.headMap(end, false)
+                : activeRecordsByDueDate.subMap(start, false, end, false);
+        List<DueKey> keys = new ArrayList<>(chunkSize);
+        for (DueKey key : overdue.keySet()) {
+            if (keys.size() == chunkSize) {
+                break;
+            }
+            keys.add(key);
+        }
+        boolean hasMore = keys.size() == chunkSize && overdue.higherKey(keys.get(keys.size() - 1)) != null;
+        
+        List<String> studentIds = new ArrayList<>(keys.size());
+        for (DueKey key : keys) {
+            BorrowRecord record = borrowRecords.get(key.recordId);
+            if (record != null) {
+                studentIds.add(record.getStudentId());
+            }
+        }
+        List<BorrowRecord> accrued = new ArrayList<>(keys.size());
+        List<BorrowRecord> changed = new ArrayList<>();
+        long position = NOT_LOGGED;
+        List<ReentrantLock> studentStripes = stripes(studentLocks, studentIds.stream());
+        studentStripes.forEach(ReentrantLock::lock);
+        long version = versions.beginWrite();
+        try {
+            for (DueKey key : keys) {
+                // Entries can outlive a return or renewal until retired; only the loan's current entry counts
+                BorrowRecord record = borrowRecords.get(key.recordId);
+                if (record == null || record.isReturned() || record.getDueDate().toEpochDay() != key.dueEpochDay) {
+                    continue;
+                }
+                BorrowRecord fined = new BorrowRecord(record);
+                fined.calculateFine(asOf);
+                if (fined.getFineAmount() != record.getFineAmount()) {
+                    storeRecord(fined, version);
+                    changed.add(fined);
+                }
+                accrued.add(new BorrowRecord(fined));
+            }
+            if (!changed.isEmpty()) {
+                position = logged(batch -> changed.forEach(batch::putBorrowRecord));
+            }
+        } finally {
+            versions.endWrite(version);
+            unlockAll(studentStripes);
+        }
+        awaitDurable(position);
+        DueKey last = keys.isEmpty() ? null : keys.get(keys.size() - 1);
+        return new Page<>(accrued, hasMore
+                ? Page.encodeToken(LocalDate.ofEpochDay(last.dueEpochDay).toString(), last.recordId) : null);
+    }
+    
+    // Write-ahead logging - append under the entity locks, wait for durability after releasing them
+    private long logged(Consumer<WriteAheadLog.Batch> entries) {
+        if (log == null) {
+            return NOT_LOGGED;
+        }
+        WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+        entries.accept(batch);
+        return log.append(batch);
+    }
+    
+    private void awaitDurable(long position) {
+        if (log != null && position != NOT_LOGGED) {
+            log.awaitDurable(position);
+        }
+    }
+    
+    public WriteAheadLog.LogStatistics getLogStatistics() {
+        return log != null ? log.getStatistics() : null;
+    }
+    
+    // Snapshot loading
+    private void startLoading() {
+        LibrarySnapshot snapshot = pendingSnapshot;
+        if (snapshot == null) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            load(snapshot);
+            if (loadFailure == null) {
+                archiveClosedLoans();
+            }
+        }, "snapshot-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    /**
+     * Copies every snapshot entity into the maps and indexes. Entities that were
+     * already materialized, changed or deleted since startup are newer than the
+     * snapshot and are left alone.
+     */
+    private void load(LibrarySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < snapshot.getStudentCount(); i++) {
+                Student student = snapshot.getStudent(i);
+                ReentrantLock lock = stripe(studentLocks, student.getStudentId());
+                lock.lock();
+                try {
+                    if (!students.containsKey(student.getStudentId()) && !deletedStudents.contains(student.getStudentId())) {
+                        installStudent(student, VersionClock.BASE);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            for (int i = 0; i < snapshot.getBookCount(); i++) {
+                Book book = snapshot.getBook(i);
+                ReentrantLock lock = stripe(bookLocks, book.getBookId());
+                lock.lock();
+                try {
+                    if (!books.containsKey(book.getBookId()) && !deletedBooks.contains(book.getBookId())) {
+                        installBook(book, VersionClock.BASE);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            for (int i = 0; i < snapshot.getBorrowRecordCount(); i++) {
+                BorrowRecord record = snapshot.getBorrowRecord(i);
+                ReentrantLock lock = stripe(studentLocks, record.getStudentId());
+                lock.lock();
+                try {
+                    if (!borrowRecords.containsKey(record.getRecordId())) {
+                        storeRecord(record, VersionClock.BASE);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            snapshot.readArchive(archive);
+            archive.forEachBookLoanCount(typeahead::addLoans);
+            LOGGER.info("Loaded snapshot in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (RuntimeException ex) {
+            loadFailure = ex;
+            LOGGER.log(Level.SEVERE, "Failed to load snapshot", ex);
+        } finally {
+            pendingSnapshot = null;
+            deletedStudents.clear();
+            deletedBooks.clear();
+            loaded.countDown();
+        }
+    }
+    
+    /**
+     * Holds are few and every loan consults them, so they are installed
+     * before the log is replayed over them rather than in the background.
+     * Placement order rebuilds each book's queues.
+     */
+    private void loadHolds(LibrarySnapshot snapshot) {
+        List<Hold> holdList = new ArrayList<>(snapshot.getHoldCount());
+        for (int i = 0; i < snapshot.getHoldCount(); i++) {
+            holdList.add(snapshot.getHold(i));
+        }
+        holdList.sort(Comparator.comparing(Hold::getPlacedAt).thenComparing(Hold::getHoldId));
+        holdList.forEach(hold -> storeHold(hold, VersionClock.BASE));
+    }
+    
+    // Called under the student's lock stripe; decodes the student from the snapshot if not yet loaded
+    private void materializeStudent(String studentId) {
+        LibrarySnapshot snapshot = pendingSnapshot;
+        if (snapshot != null && !students.containsKey(studentId) && !deletedStudents.contains(studentId)) {
+            Student student = snapshot.findStudent(studentId);
+            if (student != null) {
+                installStudent(student, VersionClock.BASE);
+            }
+        }
+    }
+    
+    // Called under the book's lock stripe
+    private void materializeBook(String bookId) {
+        LibrarySnapshot snapshot = pendingSnapshot;
+        if (snapshot != null && !books.containsKey(bookId) && !deletedBooks.contains(bookId)) {
+            Book book = snapshot.findBook(bookId);
+            if (book != null) {
+                installBook(book, VersionClock.BASE);
+            }
+        }
+    }
+    
+    // Called under the owning student's lock stripe
+    private void materializeRecord(String recordId) {
+        LibrarySnapshot snapshot = pendingSnapshot;
+        if (snapshot != null && !borrowRecords.containsKey(recordId)) {
+            BorrowRecord record = snapshot.findBorrowRecord(recordId);
+            if (record != null) {
+                storeRecord(record, VersionClock.BASE);
+            }
+        }
+    }
+    
+    // Whole-library reads wait here until the snapshot is loaded; never called while holding a stripe
+    private void awaitLoaded() {
+        if (loaded.getCount() > 0) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    loaded.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (loadFailure != null) {
+            throw new IllegalStateException("Snapshot could not be loaded", loadFailure);
+        }
+    }
+    
+    /**
+     * Writes a snapshot so the next start only replays the log written after it.
+     * Writers keep running: every frame before the recorded log position has
+     * already been applied in memory, so the scan sees it, and frames after it
+     * are full-state entries that replay cleanly over whatever the scan saw.
+     */
+    public boolean checkpoint() {
+        if (log == null || snapshotFile == null) {
+            LOGGER.warning("Cannot checkpoint - no snapshot file configured");
+            return false;
+        }
+        awaitLoaded();
+        synchronized (checkpointLock) {
+            long start = System.currentTimeMillis();
+            try {
+                archiveClosedLoans();
+                long position = log.getPosition();
+                // Replay starts at this position, so the log must really reach it
+                log.sync();
+                List<Student> studentList = streamAllStudents().collect(Collectors.toList());
+                List<Book> bookList = streamAllBooks().collect(Collectors.toList());
+                // Stored records are replaced, never mutated, so they can be written as they are
+                List<BorrowRecord> recordList = borrowRecords.values().collect(Collectors.toList());
+                List<Hold> holdList = holds.values().collect(Collectors.toList());
+                LibrarySnapshot.write(snapshotFile, position, studentList, bookList, recordList, holdList, archive);
+                // Only the frames after the snapshot are kept
+                log.rotate(position);
+                LOGGER.info("Wrote snapshot of " + studentList.size() + " students, " + bookList.size() + " books and "
+                            + recordList.size() + " borrow records and " + archive.size() + " archived loans in " + (System.currentTimeMillis() - start) + "ms");
+                return true;
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Failed to write snapshot", ex);
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Moves loans returned more than ARCHIVE_AFTER_DAYS ago from the record map
+     * and its indexes into the columnar archive. Runs after startup and before
+     * every checkpoint; returns how many loans were moved.
+     */
+    public int archiveClosedLoans() {
+        awaitLoaded();
+        long cutoff = LocalDate.now().minusDays(ARCHIVE_AFTER_DAYS).toEpochDay();
+        int archived = 0;
+        for (String studentId : recordsByStudent.keySet()) {
+            ReentrantLock lock = stripe(studentLocks, studentId);
+            lock.lock();
+            long version = versions.beginWrite();
+            try {
+                NavigableMap<LoanKey, String> history = recordsByStudent.get(studentId);
+                if (history == null) {
+                    continue;
+                }
+                Iterator<String> recordIds = history.values().iterator();
+                while (recordIds.hasNext()) {
+                    BorrowRecord record = borrowRecords.get(recordIds.next());
+                    if (record == null || !record.isReturned() || record.getReturnDate() == null
+                            || record.getReturnDate().toEpochDay() >= cutoff) {
+                        continue;
+                    }
+                    archive.append(record);
+                    recordIds.remove();
+                    borrowRecords.remove(record.getRecordId(), version);
+                    Set<String> byBook = recordsByBook.get(record.getBookId());
+                    if (byBook != null) {
+                        byBook.remove(record.getRecordId());
+                    }
+                    archived++;
+                }
+                if (history.isEmpty()) {
+                    recordsByStudent.remove(studentId);
+                }
+            } finally {
+                versions.endWrite(version);
+                lock.unlock();
+            }
+        }
+        if (archived > 0) {
+            LOGGER.info("Archived " + archived + " closed loans");
+        }
+        return archived;
+    }
+    
+    public LoanArchive getLoanArchive() {
+        return archive;
+    }
+    
+    // Checkpoints periodically on a background thread
+    public synchronized void scheduleCheckpoints(long periodMillis) {
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    // Applies replayed entries straight to the maps; runs before the instance is published, so without versions
+    private class LogReplayer implements WriteAheadLog.Replayer {
+        @Override
+        public void putStudent(Student student) {
+            installStudent(student, VersionClock.BASE);
+        }
+        
+        @Override
+        public void deleteStudent(String studentId) {
+            uninstallStudent(studentId, VersionClock.BASE);
+        }
+        
+        @Override
+        public void putBook(Book book) {
+            installBook(book, VersionClock.BASE);
+        }
+        
+        @Override
+        public void deleteBook(String bookId) {
+            uninstallBook(bookId, VersionClock.BASE);
+        }
+        
+        @Override
+        public void putBorrowRecord(BorrowRecord record) {
+            storeRecord(record, VersionClock.BASE);
+        }
+        
+        @Override
+        public void putHold(Hold hold) {
+            storeHold(hold, VersionClock.BASE);
+        }
+    }
+    
+    // O(1) lookup of the oldest active loan for the pair; called under the student's lock stripe
+    private BorrowRecord findActiveRecord(String studentId, String bookId) {
+        Deque<String> active = activeRecordsByLoan.get(loanKey(studentId, bookId));
+        String recordId = active != null ? active.peekFirst() : null;
+        return recordId != null ? borrowRecords.get(recordId) : null;
+    }
+    
+    /**
+     * Stores the record and keeps the secondary indexes in step with it.
+     * Called under the student's lock stripe, which guards all of that
+     * student's index entries.
+     */
+    private void storeRecord(BorrowRecord record, long version) {
+        BorrowRecord previous = borrowRecords.put(record.getRecordId(), record, version);
+        if (previous == null) {
+            recordsByStudent.computeIfAbsent(record.getStudentId(), id -> new TreeMap<>())
+                    .put(new LoanKey(record.getBorrowDate().toEpochDay(), record.getRecordId()), record.getRecordId());
+            recordsByBook.computeIfAbsent(record.getBookId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(record.getRecordId());
+            typeahead.addLoans(record.getBookId(), 1);
+        }
+        
+        boolean wasActive = previous != null && !previous.isReturned();
+        boolean isActive = !record.isReturned();
+        String pair = loanKey(record.getStudentId(), record.getBookId());
+        if (isActive && !wasActive) {
+            activeRecordsByLoan.computeIfAbsent(pair, key -> new ArrayDeque<>()).addLast(record.getRecordId());
+        } else if (wasActive && !isActive) {
+            Deque<String> active = activeRecordsByLoan.get(pair);
+            if (active != null) {
+                active.remove(record.getRecordId());
+                if (active.isEmpty()) {
+                    activeRecordsByLoan.remove(pair);
+                }
+            }
+        }
+        
+        // Renewals move the loan within the due-date index
+        long previousDue = wasActive ? previous.getDueDate().toEpochDay() : 0;
+        long due = isActive ? record.getDueDate().toEpochDay() : 0;
+        if (wasActive && !(isActive && previousDue == due)) {
+            retireDueKey(new DueKey(previousDue, previous.getRecordId()), version);
+        }
+        if (isActive) {
+            activeRecordsByDueDate.put(new DueKey(due, record.getRecordId()), record.getRecordId());
+        }
+    }
+    
+    /**
+     * Readers pinned before the change still see the loan as active with its
+     * old due date, so its old entry stays in the index until they are done.
+     * Readers check each entry against the record at their version.
+     */
+    private void retireDueKey(DueKey key, long version) {
+        if (version == VersionClock.BASE) {
+            activeRecordsByDueDate.remove(key);
+            return;
+        }
+        versions.retire(version, oldest -> {
+            // Runs without the student's lock; only drop the entry if the loan has not come back to it
+            BorrowRecord current = borrowRecords.get(key.recordId);
+            if (current == null || current.isReturned() || current.getDueDate().toEpochDay() != key.dueEpochDay) {
+                activeRecordsByDueDate.remove(key);
+            }
+        });
+    }
+    
+    /**
+     * Stores the hold and keeps the book's queues in step with it. Holds that
+     * are fulfilled, cancelled or expired leave the map. Called under the
+     * book's lock stripe, which guards all of that book's holds.
+     */
+    private void storeHold(Hold hold, long version) {
+        Hold previous = hold.isActive() ? holds.put(hold.getHoldId(), hold, version)
+                                        : holds.remove(hold.getHoldId(), version);
+        Hold.Status was = previous != null ? previous.getStatus() : null;
+        if (was == hold.getStatus()) {
+            return;
+        }
+        // Promotion and expiry take the head of their queue, so these removals are O(1) on those paths
+        if (was == Hold.Status.WAITING) {
+            dequeue(waitingHoldsByBook, hold.getBookId(), hold.getHoldId());
+        } else if (was == Hold.Status.READY) {
+            dequeue(readyHoldsByBook, hold.getBookId(), hold.getHoldId());
+        }
+        if (hold.getStatus() == Hold.Status.WAITING) {
+            waitingHoldsByBook.computeIfAbsent(hold.getBookId(), id -> new ConcurrentLinkedDeque<>()).addLast(hold.getHoldId());
+        } else if (hold.getStatus() == Hold.Status.READY) {
+            readyHoldsByBook.computeIfAbsent(hold.getBookId(), id -> new ConcurrentLinkedDeque<>()).addLast(hold.getHoldId());
+        }
+        
+        String pair = loanKey(hold.getStudentId(), hold.getBookId());
+        if (hold.isActive()) {
+            activeHoldsByLoan.put(pair, hold.getHoldId());
+            holdsByStudent.compute(hold.getStudentId(), (id, ids) -> {
+                Set<String> held = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                held.add(hold.getHoldId());
+                return held;
+            });
+        } else {
+            activeHoldsByLoan.remove(pair, hold.getHoldId());
+            holdsByStudent.computeIfPresent(hold.getStudentId(), (id, held) -> {
+                held.remove(hold.getHoldId());
+                return held.isEmpty() ? null : held;
+            });
+        }
+    }
+    
+    private static void dequeue(ConcurrentMap<String, Deque<String>> queues, String bookId, String holdId) {
+        queues.computeIfPresent(bookId, (id, queue) -> {
+            queue.remove(holdId);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+    
+    // The student's waiting or ready hold on the book; called under the book's lock stripe
+    private Hold activeHold(String studentId, String bookId) {
+        String holdId = activeHoldsByLoan.get(loanKey(studentId, bookId));
+        return holdId != null ? holds.get(holdId) : null;
+    }
+    
+    // True when the hold has a copy set aside that the student may still pick up
+    private static boolean holdsCopy(Hold hold) {
+        return hold != null && hold.isReady() && !hold.isPickupExpired(LocalDate.now());
+    }
+    
+    // Stores a copy of the hold with the new status and returns it
+    private Hold finishHold(Hold hold, Hold.Status status, long version) {
+        Hold finished = new Hold(hold);
+        finished.setStatus(status);
+        storeHold(finished, version);
+        return finished;
+    }
+    
+    /**
+     * Hands a returned copy to the book's oldest waiting hold in O(1) and
+     * starts its pickup window. Returns that hold, or null if nobody is
+     * waiting and the copy goes back on the shelf. Called under the book's
+     * lock stripe.
+     */
+    private Hold promoteNextHold(String bookId, long version) {
+        Deque<String> waiting = waitingHoldsByBook.get(bookId);
+        String holdId = waiting != null ? waiting.peekFirst() : null;
+        Hold next = holdId != null ? holds.get(holdId) : null;
+        if (next == null) {
+            return null;
+        }
+        Hold ready = new Hold(next);
+        ready.markReady();
+        storeHold(ready, version);
+        return ready;
+    }
+    
+    // Orders active loans by due date, earliest first, like ORDER BY due_date
+    private static final class DueKey implements Comparable<DueKey> {
+        private final long dueEpochDay;
+        private final String recordId;
+        
+        DueKey(long dueEpochDay, String recordId) {
+            this.dueEpochDay = dueEpochDay;
+            this.recordId = recordId;
+        }
+        
+        @Override
+        public int compareTo(DueKey other) {
+            int byDate = Long.compare(dueEpochDay, other.dueEpochDay);
+            return byDate != 0 ? byDate : recordId.compareTo(other.recordId);
+        }
+    }
+    
+    private static String loanKey(String studentId, String bookId) {
+        return studentId + Page.KEY_SEPARATOR + bookId;
+    }
+    
+    // Orders a student's history newest first, like ORDER BY borrow_date DESC
+    private static final class LoanKey implements Comparable<LoanKey> {
+        private final long borrowEpochDay;
+        private final String recordId;
+        
+        LoanKey(long borrowEpochDay, String recordId) {
+            this.borrowEpochDay = borrowEpochDay;
+            this.recordId = recordId;
+        }
+        
+        @Override
+        public int compareTo(LoanKey other) {
+            int byDate = Long.compare(other.borrowEpochDay, borrowEpochDay);
+            return byDate != 0 ? byDate : recordId.compareTo(other.recordId);
+        }
+    }
+    
+    private static ReentrantLock[] newStripes() {
+        ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+    
+    private static ReentrantLock stripe(ReentrantLock[] stripes, String id) {
+        return stripes[stripeIndex(id)];
+    }
+    
+    private static int stripeIndex(String id) {
+        int hash = id != null ? id.hashCode() : 0;
+        // Spread the hash bits so ids with similar prefixes land on different stripes
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, LOCK_STRIPES);
+    }
+    
+    // The distinct stripes of several ids in index order; batches lock them in that order so they cannot deadlock
+    private static List<ReentrantLock> stripes(ReentrantLock[] stripes, Stream<String> ids) {
+        return ids.mapToInt(InMemoryDatabaseManager::stripeIndex).distinct().sorted()
+                  .mapToObj(index -> stripes[index]).collect(Collectors.toList());
+    }
+    
+    private static void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+    
+    // Aggregate statistics
+    // Every figure is counted at one pinned version, so a loan in progress is in all of them or none
+    public LibraryManager.LibraryStatistics computeLibraryStatistics() {
+        awaitLoaded();
+        try (VersionClock.ReadView view = versions.pin()) {
+            long version = view.getVersion();
+            int[] studentTotals = new int[2];
+            students.values(version).forEach(student -> {
+                studentTotals[0]++;
+                studentTotals[1] += student.getCurrentBorrowCount();
+            });
+            int totalBooks = (int) books.values(version).count();
+            LibraryManager.OverdueSummary overdue = summarize(overdueRecords(version));
+            return new LibraryManager.LibraryStatistics(studentTotals[0], totalBooks, studentTotals[1],
+                                                        overdue.getOverdueCount(), overdue.getTotalFines());
+        }
+    }
+    
+    public LibraryManager.OverdueSummary getOverdueSummary() {
+        return summarize(getOverdueRecords());
+    }
+    
+    private static LibraryManager.OverdueSummary summarize(List<BorrowRecord> overdue) {
+        double fines = overdue.stream().mapToDouble(BorrowRecord::getFineAmount).sum();
+        return new LibraryManager.OverdueSummary(overdue.size(), fines);
+    }
+    
+    public VersionClock.VersionStatistics getVersionStatistics() {
+        return versions.getStatistics();
     }
     
     // Utility methods
     public int getTotalStudents() {
+        awaitLoaded();
         return students.size();
     }
     
     public int getTotalBooks() {
+        awaitLoaded();
         return books.size();
     }
     
     public void closeConnection() {
-        // Nothing to close for in-memory storage
+        synchronized (this) {
+            if (checkpointer != null) {
+                checkpointer.shutdownNow();
+                checkpointer = null;
+            }
+        }
+        // A fresh snapshot on shutdown keeps the next start quick
+        if (snapshotFile != null) {
+            checkpoint();
+        }
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Failed to close write-ahead log", ex);
+            }
+        }
         System.out.println("In-memory database closed.");
     }
 }
\ No newline at end of file
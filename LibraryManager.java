@@ -1,26 +1,74 @@
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * LibraryManager is the main service class that handles all library operations
  */
 public class LibraryManager {
-    private DatabaseManager dbManager;
+    private LibraryStorage dbManager;
+    private final IdGenerator idGenerator;
     private static final Logger LOGGER = Logger.getLogger(LibraryManager.class.getName());
     private static final int DEFAULT_BORROW_PERIOD = 14; // 14 days
+    private static final int MAX_RENEWAL_DAYS_OVERDUE = 7;
+    
+    // Statistics counters, maintained incrementally by the operations below
+    private final AtomicInteger totalStudentsCounter = new AtomicInteger();
+    private final AtomicInteger totalBooksCounter = new AtomicInteger();
+    private final AtomicInteger borrowedBooksCounter = new AtomicInteger();
+    private volatile boolean statisticsLoaded;
+    private OverdueSummary overdueSummary;
+    private LocalDate overdueSummaryDate;
     
     // Singleton pattern
     private static LibraryManager instance;
     
     private LibraryManager() {
-        this.dbManager = DatabaseManager.getInstance();
+        this(DatabaseManager.getInstance());
+    }
+    
+    /**
+     * Creates a manager on the given storage backend, e.g. an
+     * InMemoryDatabaseManager for kiosks or for benchmarking.
+     */
+    public LibraryManager(LibraryStorage storage) {
+        this(storage, TimeOrderedIdGenerator.processWide());
+    }
+    
+    /**
+     * Creates a manager that names new students, books, loans and holds with
+     * the given generator. Managers writing to the same storage must share
+     * one generator or use generators that cannot collide, e.g.
+     * TimeOrderedIdGenerators with distinct node ids.
+     */
+    public LibraryManager(LibraryStorage storage, IdGenerator idGenerator) {
+        this.dbManager = storage;
+        this.idGenerator = idGenerator;
+    }
+    
+    /**
+     * Creates a manager whose writes run on shards: students and books are
+     * partitioned by id across shardCount single-threaded workers, so changes
+     * to one entity apply in order and unrelated ones run in parallel.
+     */
+    public static LibraryManager partitioned(LibraryStorage storage, int shardCount) {
+        return new LibraryManager(new PartitionedLibraryStorage(storage, shardCount));
+    }
+    
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
     }
     
-    public static LibraryManager getInstance() {
+    public static synchronized LibraryManager getInstance() {
         if (instance == null) {
             instance = new LibraryManager();
         }
@@ -39,6 +87,7 @@ public class LibraryManager {
             boolean result = dbManager.addStudent(student);
             
             if (result) {
+                totalStudentsCounter.incrementAndGet();
                 LOGGER.info("Student added successfully: " + studentId);
             } else {
                 LOGGER.warning("Failed to add student: " + studentId);
@@ -51,6 +100,12 @@ public class LibraryManager {
         }
     }
     
+    // Adds a student under a generated ID; returns the ID, or null if the student could not be added
+    public String addStudent(String name, String email, String address, String phone) {
+        String studentId = idGenerator.nextId(IdGenerator.Kind.STUDENT);
+        return addStudent(studentId, name, email, address, phone) ? studentId : null;
+    }
+    
     public boolean updateStudent(String studentId, String name, String email, String address, String phone) {
         try {
             Student existingStudent = getStudent(studentId);
@@ -89,6 +144,7 @@ public class LibraryManager {
             boolean result = dbManager.deleteStudent(studentId);
             
             if (result) {
+                totalStudentsCounter.decrementAndGet();
                 LOGGER.info("Student removed successfully: " + studentId);
             } else {
                 LOGGER.warning("Failed to remove student: " + studentId);
@@ -121,6 +177,7 @@ public class LibraryManager {
             boolean result = dbManager.addBook(book);
             
             if (result) {
+                totalBooksCounter.incrementAndGet();
                 LOGGER.info("Book added successfully: " + bookId);
             } else {
                 LOGGER.warning("Failed to add book: " + bookId);
@@ -133,6 +190,12 @@ public class LibraryManager {
         }
     }
     
+    // Adds a book under a generated ID; returns the ID, or null if the book could not be added
+    public String addBook(String title, String author, String isbn, String genre, int totalCopies) {
+        String bookId = idGenerator.nextId(IdGenerator.Kind.BOOK);
+        return addBook(bookId, title, author, isbn, genre, totalCopies) ? bookId : null;
+    }
+    
     public boolean updateBook(String bookId, String title, String author, String isbn, String genre, int totalCopies) {
         try {
             Book existingBook = getBook(bookId);
@@ -180,6 +243,7 @@ public class LibraryManager {
             boolean result = dbManager.deleteBook(bookId);
             
             if (result) {
+                totalBooksCounter.decrementAndGet();
                 LOGGER.info("Book removed successfully: " + bookId);
             } else {
                 LOGGER.warning("Failed to remove book: " + bookId);
@@ -204,10 +268,45 @@ public class LibraryManager {
         return dbManager.searchBooks(keyword);
     }
     
+    public List<Book> getBooksByGenre(String genre) {
+        return dbManager.getBooksByGenre(genre);
+    }
+    
+    public List<Book> getBooksByAuthor(String author) {
+        return dbManager.getBooksByAuthor(author);
+    }
+    
+    // Search-box suggestions: titles and author names matching the typed prefix
+    public List<String> autocomplete(String prefix, int limit) {
+        return dbManager.autocomplete(prefix, limit);
+    }
+    
     public List<Book> getAvailableBooks() {
-        return getAllBooks().stream()
-                .filter(book -> book.isAvailable())
-                .collect(Collectors.toList());
+        // Availability is filtered in SQL so only matching rows are transferred
+        try (Stream<Book> available = dbManager.streamAvailableBooks()) {
+            return available.collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Streams the whole catalog in title order without loading it into memory.
+     * The returned stream holds a database connection and must be closed.
+     */
+    public Stream<Book> streamAllBooks() {
+        return dbManager.streamAllBooks();
+    }
+    
+    public Stream<Student> streamAllStudents() {
+        return dbManager.streamAllStudents();
+    }
+    
+    // Paged listings - pass null for the first page, then the previous page's token
+    public Page<Book> getBooksPage(String pageToken, int pageSize) {
+        return dbManager.getBooksPage(pageToken, pageSize);
+    }
+    
+    public Page<Student> getStudentsPage(String pageToken, int pageSize) {
+        return dbManager.getStudentsPage(pageToken, pageSize);
     }
     
     // Borrowing and returning methods
@@ -217,54 +316,13 @@ public class LibraryManager {
     
     public String borrowBook(String studentId, String bookId, int borrowPeriodDays) {
         try {
-            // Validate student
-            Student student = getStudent(studentId);
-            if (student == null) {
-                return "Error: Student not found";
-            }
-            
-            // Check if student can borrow more books
-            if (!student.canBorrowMore()) {
-                return "Error: Student has reached maximum borrowing limit (" + student.getMaxBorrowLimit() + ")";
-            }
-            
-            // Validate book
-            Book book = getBook(bookId);
-            if (book == null) {
-                return "Error: Book not found";
-            }
-            
-            // Check if book is available
-            if (!book.isAvailable()) {
-                return "Error: Book is not available for borrowing";
-            }
-            
             // Generate unique record ID
-            String recordId = "BR" + UUID.randomUUID().toString().substring(0, 8);
-            
-            // Create borrow record
+            String recordId = idGenerator.nextId(IdGenerator.Kind.BORROW_RECORD);
             BorrowRecord borrowRecord = new BorrowRecord(recordId, studentId, bookId, borrowPeriodDays);
             
-            // Update book availability
-            book.borrowBook();
-            
-            // Update student's borrow count
-            student.borrowBook();
-            
-            // Save to database
-            boolean bookUpdated = dbManager.updateBook(book);
-            boolean studentUpdated = dbManager.updateStudent(student);
-            boolean recordAdded = dbManager.addBorrowRecord(borrowRecord);
-            
-            if (bookUpdated && studentUpdated && recordAdded) {
-                LOGGER.info("Book borrowed successfully: " + bookId + " by student " + studentId);
-                return "Success: Book borrowed successfully. Due date: " + borrowRecord.getFormattedDueDate() + ". Record ID: " + recordId;
-            } else {
-                // Rollback changes if any operation failed
-                book.returnBook();
-                student.returnBook();
-                return "Error: Failed to process borrowing transaction";
-            }
+            // Claim a borrow slot and a copy, and record the loan, in one transaction
+            LoanResult result = dbManager.borrowBook(borrowRecord);
+            return describeBorrow(result, borrowRecord);
             
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error borrowing book", e);
@@ -272,144 +330,247 @@ public class LibraryManager {
         }
     }
     
+    private String describeBorrow(LoanResult result, BorrowRecord borrowRecord) {
+        switch (result.getStatus()) {
+            case SUCCESS:
+                borrowedBooksCounter.incrementAndGet();
+                LOGGER.info("Book borrowed successfully: " + borrowRecord.getBookId() + " by student " + borrowRecord.getStudentId());
+                return "Success: Book borrowed successfully. Due date: " + borrowRecord.getFormattedDueDate() + ". Record ID: " + borrowRecord.getRecordId();
+            case STUDENT_NOT_FOUND:
+                return "Error: Student not found";
+            case BORROW_LIMIT_REACHED:
+                Student student = getStudent(borrowRecord.getStudentId());
+                int limit = student != null ? student.getMaxBorrowLimit() : 0;
+                return "Error: Student has reached maximum borrowing limit (" + limit + ")";
+            case BOOK_NOT_FOUND:
+                return "Error: Book not found";
+            case BOOK_UNAVAILABLE:
+                return "Error: Book is not available for borrowing";
+            default:
+                return "Error: Failed to process borrowing transaction";
+        }
+    }
+    
     public String returnBook(String studentId, String bookId) {
         try {
-            // Find the active borrow record
-            List<BorrowRecord> borrowRecords = dbManager.getBorrowRecordsByStudent(studentId);
-            BorrowRecord activeRecord = null;
-            
-            for (BorrowRecord record : borrowRecords) {
-                if (record.getBookId().equals(bookId) && !record.isReturned()) {
-                    activeRecord = record;
-                    break;
-                }
-            }
-            
-            if (activeRecord == null) {
-                return "Error: No active borrow record found for this book and student";
-            }
-            
-            // Get student and book
-            Student student = getStudent(studentId);
-            Book book = getBook(bookId);
-            
-            if (student == null || book == null) {
-                return "Error: Student or book not found";
-            }
-            
-            // Process return
-            activeRecord.returnBook();
-            book.returnBook();
-            student.returnBook();
-            
-            // Update database
-            boolean recordUpdated = dbManager.updateBorrowRecord(activeRecord);
-            boolean bookUpdated = dbManager.updateBook(book);
-            boolean studentUpdated = dbManager.updateStudent(student);
+            // Close the loan and release the copy and borrow slot in one transaction
+            LoanResult result = dbManager.returnBook(studentId, bookId);
+            return describeReturn(result, studentId, bookId);
             
-            if (recordUpdated && bookUpdated && studentUpdated) {
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error returning book", e);
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    private String describeReturn(LoanResult result, String studentId, String bookId) {
+        switch (result.getStatus()) {
+            case SUCCESS:
+                BorrowRecord returnedRecord = result.getRecord();
+                borrowedBooksCounter.decrementAndGet();
+                invalidateOverdueSummary();
                 LOGGER.info("Book returned successfully: " + bookId + " by student " + studentId);
                 
-                String message = "Success: Book returned successfully on " + activeRecord.getFormattedReturnDate();
-                if (activeRecord.getFineAmount() > 0) {
-                    message += ". Fine amount: $" + String.format("%.2f", activeRecord.getFineAmount());
+                String message = "Success: Book returned successfully on " + returnedRecord.getFormattedReturnDate();
+                if (returnedRecord.getFineAmount() > 0) {
+                    message += ". Fine amount: $" + String.format("%.2f", returnedRecord.getFineAmount());
+                }
+                Hold promoted = result.getPromotedHold();
+                if (promoted != null) {
+                    message += ". Copy held for student " + promoted.getStudentId() + " until " + promoted.getFormattedReadyUntil();
                 }
                 return message;
-            } else {
+            case NO_ACTIVE_LOAN:
+                return "Error: No active borrow record found for this book and student";
+            default:
                 return "Error: Failed to process return transaction";
+        }
+    }
+    
+    /**
+     * Checks out a self-checkout station's whole stack for one student in a
+     * single transaction. The borrow limit is checked once and the books are
+     * claimed together, so the stack takes about as long as one checkout.
+     * Returns one message per book, in the order given.
+     */
+    public List<String> borrowBooks(String studentId, List<String> bookIds) {
+        return borrowBooks(studentId, bookIds, DEFAULT_BORROW_PERIOD);
+    }
+    
+    public List<String> borrowBooks(String studentId, List<String> bookIds, int borrowPeriodDays) {
+        List<String> messages = new ArrayList<>(bookIds.size());
+        try {
+            List<BorrowRecord> borrowRecords = new ArrayList<>(bookIds.size());
+            for (String bookId : bookIds) {
+                String recordId = idGenerator.nextId(IdGenerator.Kind.BORROW_RECORD);
+                borrowRecords.add(new BorrowRecord(recordId, studentId, bookId, borrowPeriodDays));
+            }
+            List<LoanResult> results = dbManager.borrowBooks(borrowRecords);
+            for (int i = 0; i < results.size(); i++) {
+                messages.add(describeBorrow(results.get(i), borrowRecords.get(i)));
             }
-            
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error returning book", e);
-            return "Error: " + e.getMessage();
+            LOGGER.log(Level.SEVERE, "Error borrowing books", e);
+            messages.clear();
+            messages.addAll(Collections.nCopies(bookIds.size(), "Error: " + e.getMessage()));
+        }
+        return messages;
+    }
+    
+    // Returns a stack of books for one student in a single transaction; one message per book
+    public List<String> returnBooks(String studentId, List<String> bookIds) {
+        List<String> messages = new ArrayList<>(bookIds.size());
+        try {
+            List<LoanResult> results = dbManager.returnBooks(studentId, bookIds);
+            for (int i = 0; i < results.size(); i++) {
+                messages.add(describeReturn(results.get(i), studentId, bookIds.get(i)));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error returning books", e);
+            messages.clear();
+            messages.addAll(Collections.nCopies(bookIds.size(), "Error: " + e.getMessage()));
         }
+        return messages;
     }
     
     public List<BorrowRecord> getActiveBorrowRecords(String studentId) {
-        return dbManager.getBorrowRecordsByStudent(studentId).stream()
-                .filter(record -> !record.isReturned())
-                .collect(Collectors.toList());
+        try (Stream<BorrowRecord> active = dbManager.streamActiveBorrowRecordsByStudent(studentId)) {
+            return active.collect(Collectors.toList());
+        }
     }
     
     public List<BorrowRecord> getBorrowHistory(String studentId) {
         return dbManager.getBorrowRecordsByStudent(studentId);
     }
     
+    public Stream<BorrowRecord> streamBorrowHistory(String studentId) {
+        return dbManager.streamBorrowRecordsByStudent(studentId);
+    }
+    
     public List<BorrowRecord> getOverdueBooks() {
         return dbManager.getOverdueRecords();
     }
     
+    // Active loans due between today and the given number of days from now, earliest first
+    public List<BorrowRecord> getBooksDueWithin(int days) {
+        return dbManager.getRecordsDueWithin(days);
+    }
+    
     // Renewal method
     public String renewBook(String studentId, String bookId, int additionalDays) {
         try {
-            // Find the active borrow record
-            List<BorrowRecord> borrowRecords = dbManager.getBorrowRecordsByStudent(studentId);
-            BorrowRecord activeRecord = null;
-            
-            for (BorrowRecord record : borrowRecords) {
-                if (record.getBookId().equals(bookId) && !record.isReturned()) {
-                    activeRecord = record;
-                    break;
-                }
-            }
-            
-            if (activeRecord == null) {
-                return "Error: No active borrow record found for this book and student";
+            // Books overdue by more than MAX_RENEWAL_DAYS_OVERDUE days cannot be renewed
+            LoanResult result = dbManager.renewBook(studentId, bookId, additionalDays, MAX_RENEWAL_DAYS_OVERDUE);
+            
+            switch (result.getStatus()) {
+                case SUCCESS:
+                    invalidateOverdueSummary();
+                    LOGGER.info("Book renewed successfully: " + bookId + " by student " + studentId);
+                    return "Success: Book renewed successfully. New due date: " + result.getRecord().getFormattedDueDate();
+                case NO_ACTIVE_LOAN:
+                    return "Error: No active borrow record found for this book and student";
+                case TOO_OVERDUE:
+                    return "Error: Book is too overdue to be renewed. Please return it and pay the fine.";
+                default:
+                    return "Error: Failed to renew book";
             }
             
-            // Check if book can be renewed (not overdue by more than 7 days)
-            if (activeRecord.getDaysOverdue() > 7) {
-                return "Error: Book is too overdue to be renewed. Please return it and pay the fine.";
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error renewing book", e);
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    // Hold methods
+    /**
+     * Queues the student for a book that has no copy on the shelf. When a
+     * copy is returned it is set aside for the first student in the queue,
+     * who has Hold.PICKUP_WINDOW_DAYS days to borrow it.
+     */
+    public String placeHold(String studentId, String bookId) {
+        try {
+            String holdId = idGenerator.nextId(IdGenerator.Kind.HOLD);
+            HoldResult result = dbManager.placeHold(new Hold(holdId, studentId, bookId));
+            
+            switch (result.getStatus()) {
+                case SUCCESS:
+                    LOGGER.info("Hold placed: " + bookId + " by student " + studentId);
+                    return "Success: Hold placed. Hold ID: " + holdId;
+                case STUDENT_NOT_FOUND:
+                    return "Error: Student not found";
+                case BOOK_NOT_FOUND:
+                    return "Error: Book not found";
+                case BOOK_AVAILABLE:
+                    return "Error: Book is available for borrowing; no hold needed";
+                case ALREADY_HOLDING:
+                    return "Error: Student already has a hold on this book";
+                default:
+                    return "Error: Failed to place hold";
             }
             
-            // Extend due date
-            LocalDate newDueDate = activeRecord.getDueDate().plusDays(additionalDays);
-            BorrowRecord renewedRecord = new BorrowRecord(
-                activeRecord.getRecordId(),
-                activeRecord.getStudentId(),
-                activeRecord.getBookId(),
-                activeRecord.getBorrowDate(),
-                newDueDate,
-                null,
-                false,
-                0.0
-            );
-            
-            boolean updated = dbManager.updateBorrowRecord(renewedRecord);
-            
-            if (updated) {
-                LOGGER.info("Book renewed successfully: " + bookId + " by student " + studentId);
-                return "Success: Book renewed successfully. New due date: " + renewedRecord.getFormattedDueDate();
-            } else {
-                return "Error: Failed to renew book";
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error placing hold", e);
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    public String cancelHold(String studentId, String bookId) {
+        try {
+            HoldResult result = dbManager.cancelHold(studentId, bookId);
+            
+            switch (result.getStatus()) {
+                case SUCCESS:
+                    LOGGER.info("Hold cancelled: " + bookId + " by student " + studentId);
+                    return "Success: Hold cancelled";
+                case NO_HOLD:
+                    return "Error: No active hold found for this book and student";
+                default:
+                    return "Error: Failed to cancel hold";
             }
             
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error renewing book", e);
+            LOGGER.log(Level.SEVERE, "Error cancelling hold", e);
             return "Error: " + e.getMessage();
         }
     }
     
+    // Ready holds first, then the waiting ones in queue order
+    public List<Hold> getHoldQueue(String bookId) {
+        return dbManager.getHoldsByBook(bookId);
+    }
+    
+    public List<Hold> getStudentHolds(String studentId) {
+        return dbManager.getHoldsByStudent(studentId);
+    }
+    
+    // Releases the copies of ready holds not picked up in time; run daily
+    public int expireHolds() {
+        return dbManager.expireHolds(LocalDate.now());
+    }
+    
     // Statistics methods
+    /**
+     * Returns the library statistics from counters kept up to date by this
+     * manager's own operations, so a dashboard refresh costs no table scan.
+     * The overdue figures are re-aggregated at most once per day or after a
+     * return or renewal changed them.
+     */
     public LibraryStatistics getLibraryStatistics() {
+        return getLibraryStatistics(false);
+    }
+    
+    /**
+     * @param forceRecount recompute every figure from the database, e.g. to
+     *                     reconcile after bulk imports or writes from other processes
+     */
+    public LibraryStatistics getLibraryStatistics(boolean forceRecount) {
         try {
-            int totalStudents = dbManager.getTotalStudents();
-            int totalBooks = dbManager.getTotalBooks();
-            List<BorrowRecord> overdueRecords = getOverdueBooks();
-            int overdueCount = overdueRecords.size();
-            
-            // Calculate total borrowed books (active records)
-            int totalBorrowedBooks = 0;
-            for (Student student : getAllStudents()) {
-                totalBorrowedBooks += student.getCurrentBorrowCount();
+            if (forceRecount || !statisticsLoaded) {
+                recountStatistics();
             }
-            
-            // Calculate total fine amount
-            double totalFines = overdueRecords.stream()
-                    .mapToDouble(BorrowRecord::getFineAmount)
-                    .sum();
-            
-            return new LibraryStatistics(totalStudents, totalBooks, totalBorrowedBooks, overdueCount, totalFines);
+            OverdueSummary overdue = currentOverdueSummary();
+            return new LibraryStatistics(totalStudentsCounter.get(), totalBooksCounter.get(), borrowedBooksCounter.get(),
+                                         overdue.getOverdueCount(), overdue.getTotalFines());
             
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error getting library statistics", e);
@@ -417,6 +578,53 @@ public class LibraryManager {
         }
     }
     
+    private synchronized void recountStatistics() {
+        LibraryStatistics counted = dbManager.computeLibraryStatistics();
+        totalStudentsCounter.set(counted.getTotalStudents());
+        totalBooksCounter.set(counted.getTotalBooks());
+        borrowedBooksCounter.set(counted.getTotalBorrowedBooks());
+        overdueSummary = new OverdueSummary(counted.getOverdueBooks(), counted.getTotalFines());
+        overdueSummaryDate = LocalDate.now();
+        statisticsLoaded = true;
+    }
+    
+    // Loans become overdue as days pass, so the overdue figures are refreshed daily
+    private synchronized OverdueSummary currentOverdueSummary() {
+        LocalDate today = LocalDate.now();
+        if (overdueSummary == null || !today.equals(overdueSummaryDate)) {
+            overdueSummary = dbManager.getOverdueSummary();
+            overdueSummaryDate = today;
+        }
+        return overdueSummary;
+    }
+    
+    private synchronized void invalidateOverdueSummary() {
+        overdueSummary = null;
+    }
+    
+    // Overdue fines
+    /**
+     * Brings the stored fines of all overdue loans up to today in one run,
+     * so getOverdueBooks and the statistics report what is owed now.
+     */
+    public FineAccrualJob.AccrualReport accrueOverdueFines() {
+        FineAccrualJob.AccrualReport report = new FineAccrualJob(dbManager, null).run();
+        invalidateOverdueSummary();
+        return report;
+    }
+    
+    /**
+     * Starts the nightly fine accrual at the given time. Progress is kept in
+     * checkpointFile, so a run cut short by a crash or by the window is
+     * resumed by the next run on the same day. Stop the returned job to
+     * cancel the schedule.
+     */
+    public FineAccrualJob scheduleFineAccrual(Path checkpointFile, LocalTime at, Duration window) {
+        FineAccrualJob job = new FineAccrualJob(dbManager, checkpointFile);
+        job.scheduleDaily(at, window, report -> invalidateOverdueSummary());
+        return job;
+    }
+    
     // Inner class for statistics
     public static class LibraryStatistics {
         private final int totalStudents;
@@ -453,6 +661,20 @@ public class LibraryManager {
         }
     }
     
+    // Inner class for overdue aggregates
+    public static class OverdueSummary {
+        private final int overdueCount;
+        private final double totalFines;
+        
+        public OverdueSummary(int overdueCount, double totalFines) {
+            this.overdueCount = overdueCount;
+            this.totalFines = totalFines;
+        }
+        
+        public int getOverdueCount() { return overdueCount; }
+        public double getTotalFines() { return totalFines; }
+    }
+    
     // Cleanup method
     public void shutdown() {
         if (dbManager != null) {
@@ -0,0 +1,300 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * LibrarySnapshot is a compact binary image of all students, books, borrow
+ * records and active holds, used to warm-start InMemoryDatabaseManager without replaying the
+ * whole write-ahead log.
+ *
+ * The file is read through a read-only memory mapping and nothing is decoded
+ * on open. Each section keeps its entities sorted by id with an offset table,
+ * so a single entity can be found by binary search and decoded on demand.
+ *
+ * Layout: a fixed header (magic, version, log position, section counts and
+ * table offsets, CRC32C of the header), then per section the entity blobs as
+ * [length][encoded entity] followed by an int offset table. The loan archive
+ * follows as its raw columns so it loads with bulk reads. Version 2 files,
+ * written before holds existed, are still read and have no holds.
+ */
+public class LibrarySnapshot {
+    private static final int MAGIC = 0x4C534E50; // "LSNP"
+    private static final int VERSION = 3;
+    private static final int VERSION_WITHOUT_HOLDS = 2;
+    // magic, version, log position, created time, 5 x (count, table offset), header checksum
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 5 * (4 + 4) + 4;
+    
+    private final MappedByteBuffer buffer;
+    private final long logPosition;
+    private final long createdMillis;
+    private final Section students;
+    private final Section books;
+    private final Section borrowRecords;
+    private final Section holds;
+    private final int archiveRows;
+    private final int archiveOffset;
+    
+    private LibrarySnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a library snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION && version != VERSION_WITHOUT_HOLDS) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        // Version 2 headers have no holds section
+        int headerBytes = version == VERSION ? HEADER_BYTES : HEADER_BYTES - 8;
+        if (buffer.capacity() < headerBytes) {
+            throw new IOException("Not a library snapshot");
+        }
+        byte[] header = new byte[headerBytes - 4];
+        buffer.get(0, header);
+        CRC32C crc = new CRC32C();
+        crc.update(header, 0, header.length);
+        if ((int) crc.getValue() != buffer.getInt(headerBytes - 4)) {
+            throw new IOException("Snapshot header checksum mismatch");
+        }
+        this.logPosition = buffer.getLong(8);
+        this.createdMillis = buffer.getLong(16);
+        this.students = section(24, headerBytes);
+        this.books = section(32, headerBytes);
+        this.borrowRecords = section(40, headerBytes);
+        int archiveHeader = 48;
+        if (version == VERSION) {
+            this.holds = section(48, headerBytes);
+            archiveHeader = 56;
+        } else {
+            this.holds = new Section(0, headerBytes);
+        }
+        this.archiveRows = buffer.getInt(archiveHeader);
+        this.archiveOffset = buffer.getInt(archiveHeader + 4);
+        if (archiveRows < 0 || archiveOffset < headerBytes || archiveOffset > buffer.capacity()) {
+            throw new IOException("Corrupt snapshot archive offset");
+        }
+    }
+    
+    private Section section(int headerOffset, int headerBytes) throws IOException {
+        int count = buffer.getInt(headerOffset);
+        int tableOffset = buffer.getInt(headerOffset + 4);
+        if (count < 0 || tableOffset < headerBytes || (long) tableOffset + 4L * count > buffer.capacity()) {
+            throw new IOException("Corrupt snapshot section table");
+        }
+        return new Section(count, tableOffset);
+    }
+    
+    /**
+     * Maps the snapshot file read-only. Only the header is read and checked,
+     * so opening takes the same time regardless of how much the file holds.
+     */
+    public static LibrarySnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " is larger than a single mapping allows");
+            }
+            // The mapping stays valid after the channel is closed
+            return new LibrarySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Writes a snapshot covering the log up to logPosition. The data goes to a
+     * temporary file that is forced to disk and then renamed over the target,
+     * so readers only ever see a complete snapshot. Returns once the rename
+     * itself is on disk.
+     */
+    public static void write(Path file, long logPosition, List<Student> studentList, List<Book> bookList,
+                             List<BorrowRecord> recordList, List<Hold> holdList, LoanArchive archive) throws IOException {
+        studentList.sort(Comparator.comparing(Student::getStudentId));
+        bookList.sort(Comparator.comparing(Book::getBookId));
+        recordList.sort(Comparator.comparing(BorrowRecord::getRecordId));
+        holdList.sort(Comparator.comparing(Hold::getHoldId));
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            CountingOutput out = new CountingOutput(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), HEADER_BYTES);
+            int[] studentSection = writeSection(out, studentList, EntityCodec::writeStudent);
+            int[] bookSection = writeSection(out, bookList, EntityCodec::writeBook);
+            int[] recordSection = writeSection(out, recordList, EntityCodec::writeBorrowRecord);
+            int[] holdSection = writeSection(out, holdList, EntityCodec::writeHold);
+            int archiveOffset = out.position();
+            int archiveRows = archive.writeTo(out.data);
+            out.flush();
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(logPosition).putLong(System.currentTimeMillis());
+            header.putInt(studentSection[0]).putInt(studentSection[1]);
+            header.putInt(bookSection[0]).putInt(bookSection[1]);
+            header.putInt(recordSection[0]).putInt(recordSection[1]);
+            header.putInt(holdSection[0]).putInt(holdSection[1]);
+            header.putInt(archiveRows).putInt(archiveOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(header.array(), 0, HEADER_BYTES - 4);
+            header.putInt((int) crc.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename must be durable before the log segments it covers are deleted
+        WriteAheadLog.syncDirectory(file.toAbsolutePath().getParent());
+    }
+    
+    // Writes the blobs then the offset table; returns {count, table offset}
+    private static <T> int[] writeSection(CountingOutput out, List<T> entities, EntityWriter<T> writer) throws IOException {
+        int[] offsets = new int[entities.size()];
+        ByteArrayOutputStream blob = new ByteArrayOutputStream(256);
+        DataOutputStream blobData = new DataOutputStream(blob);
+        for (int i = 0; i < entities.size(); i++) {
+            blob.reset();
+            writer.write(blobData, entities.get(i));
+            offsets[i] = out.position();
+            out.data.writeInt(blob.size());
+            blob.writeTo(out.data);
+        }
+        int tableOffset = out.position();
+        for (int offset : offsets) {
+            out.data.writeInt(offset);
+        }
+        return new int[] { entities.size(), tableOffset };
+    }
+    
+    public long getLogPosition() { return logPosition; }
+    public long getCreatedMillis() { return createdMillis; }
+    public int getStudentCount() { return students.count; }
+    public int getBookCount() { return books.count; }
+    public int getBorrowRecordCount() { return borrowRecords.count; }
+    public int getHoldCount() { return holds.count; }
+    public int getArchivedLoanCount() { return archiveRows; }
+    
+    // Bulk-loads the archived loans into an empty archive
+    public void readArchive(LoanArchive target) {
+        ByteBuffer archive = buffer.duplicate();
+        archive.position(archiveOffset);
+        target.readFrom(archive);
+    }
+    
+    // Positional access, in id order
+    public Student getStudent(int index) {
+        return decode(students, index, EntityCodec::readStudent);
+    }
+    
+    public Book getBook(int index) {
+        return decode(books, index, EntityCodec::readBook);
+    }
+    
+    public BorrowRecord getBorrowRecord(int index) {
+        return decode(borrowRecords, index, EntityCodec::readBorrowRecord);
+    }
+    
+    public Hold getHold(int index) {
+        return decode(holds, index, EntityCodec::readHold);
+    }
+    
+    // Lookup by id - O(log n) id comparisons, decoding only the match
+    public Student findStudent(String studentId) {
+        int index = find(students, studentId);
+        return index >= 0 ? getStudent(index) : null;
+    }
+    
+    public Book findBook(String bookId) {
+        int index = find(books, bookId);
+        return index >= 0 ? getBook(index) : null;
+    }
+    
+    public BorrowRecord findBorrowRecord(String recordId) {
+        int index = find(borrowRecords, recordId);
+        return index >= 0 ? getBorrowRecord(index) : null;
+    }
+    
+    private int find(Section section, String id) {
+        int low = 0;
+        int high = section.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = decode(section, mid, EntityCodec::readString).compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    // Uses absolute reads only, so concurrent callers never disturb each other
+    private <T> T decode(Section section, int index, EntityReader<T> reader) {
+        if (index < 0 || index >= section.count) {
+            throw new IndexOutOfBoundsException("Snapshot index " + index + " out of range");
+        }
+        int offset = buffer.getInt(section.tableOffset + 4 * index);
+        byte[] blob = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, blob);
+        try {
+            return reader.read(new DataInputStream(new ByteArrayInputStream(blob)));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Corrupt snapshot entry at offset " + offset, ex);
+        }
+    }
+    
+    private static class Section {
+        private final int count;
+        private final int tableOffset;
+        
+        Section(int count, int tableOffset) {
+            this.count = count;
+            this.tableOffset = tableOffset;
+        }
+    }
+    
+    // Tracks the file offset of the buffered stream as it is written
+    private static class CountingOutput {
+        private final DataOutputStream data;
+        private final int base;
+        
+        CountingOutput(OutputStream out, int base) {
+            this.data = new DataOutputStream(out);
+            this.base = base;
+        }
+        
+        int position() throws IOException {
+            long position = (long) base + data.size();
+            if (position > Integer.MAX_VALUE || data.size() == Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is larger than a single mapping allows");
+            }
+            return (int) position;
+        }
+        
+        void flush() throws IOException {
+            data.flush();
+        }
+    }
+    
+    private interface EntityWriter<T> {
+        void write(DataOutputStream out, T entity) throws IOException;
+    }
+    
+    private interface EntityReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+}
\ No newline at end of file
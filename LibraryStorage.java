@@ -0,0 +1,73 @@
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * LibraryStorage is the storage engine interface behind LibraryManager.
+ * DatabaseManager stores data in MySQL; InMemoryDatabaseManager keeps it in memory.
+ */
+public interface LibraryStorage {
+    // Student operations
+    boolean addStudent(Student student);
+    boolean updateStudent(Student student);
+    boolean deleteStudent(String studentId);
+    Student getStudent(String studentId);
+    List<Student> getAllStudents();
+    Stream<Student> streamAllStudents();
+    Page<Student> getStudentsPage(String pageToken, int pageSize);
+    
+    // Book operations
+    boolean addBook(Book book);
+    boolean updateBook(Book book);
+    boolean deleteBook(String bookId);
+    Book getBook(String bookId);
+    List<Book> getAllBooks();
+    List<Book> searchBooks(String keyword);
+    List<Book> getBooksByGenre(String genre);
+    List<Book> getBooksByAuthor(String author);
+    List<String> autocomplete(String prefix, int limit);
+    Stream<Book> streamAllBooks();
+    Stream<Book> streamAvailableBooks();
+    Page<Book> getBooksPage(String pageToken, int pageSize);
+    
+    // Borrow record operations
+    boolean addBorrowRecord(BorrowRecord record);
+    boolean updateBorrowRecord(BorrowRecord record);
+    List<BorrowRecord> getBorrowRecordsByStudent(String studentId);
+    List<BorrowRecord> getBorrowRecordsByBook(String bookId);
+    Stream<BorrowRecord> streamBorrowRecordsByStudent(String studentId);
+    Stream<BorrowRecord> streamActiveBorrowRecordsByStudent(String studentId);
+    List<BorrowRecord> getOverdueRecords();
+    List<BorrowRecord> getRecordsDueWithin(int days);
+    
+    // Bulk operations - each returns which rows were inserted
+    boolean[] addBooks(List<Book> books);
+    boolean[] addStudents(List<Student> students);
+    
+    // Atomic loan operations
+    LoanResult borrowBook(BorrowRecord record);
+    LoanResult returnBook(String studentId, String bookId);
+    LoanResult renewBook(String studentId, String bookId, int additionalDays, int maxDaysOverdue);
+    // One student's stack of books in one transaction; one result per item, failures do not stop the rest
+    List<LoanResult> borrowBooks(List<BorrowRecord> records);
+    List<LoanResult> returnBooks(String studentId, List<String> bookIds);
+    
+    // Hold queues - a returned copy goes to the oldest waiting hold and is kept for Hold.PICKUP_WINDOW_DAYS
+    HoldResult placeHold(Hold hold);
+    HoldResult cancelHold(String studentId, String bookId);
+    List<Hold> getHoldsByBook(String bookId);
+    List<Hold> getHoldsByStudent(String studentId);
+    int expireHolds(LocalDate asOf);
+    
+    // Overdue fine accrual - one chunk of active loans due before asOf, in due date order after the token
+    Page<BorrowRecord> accrueFines(LocalDate asOf, String pageToken, int chunkSize);
+    
+    // Aggregate statistics
+    LibraryManager.LibraryStatistics computeLibraryStatistics();
+    LibraryManager.OverdueSummary getOverdueSummary();
+    
+    // Utility methods
+    int getTotalStudents();
+    int getTotalBooks();
+    void closeConnection();
+}
\ No newline at end of file
@@ -0,0 +1,493 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * LoanArchive stores closed borrow records column by column in primitive arrays
+ * instead of one BorrowRecord object per loan.
+ *
+ * Student and book ids are dictionary-encoded as ints, dates are epoch days,
+ * fines are long cents and the returned flags are packed into a bitset. Record
+ * ids share one byte array. Per-student history, per-book loan counts and fine
+ * totals are answered from the columns and small per-id aggregates, so none of
+ * them create BorrowRecord objects; toBorrowRecord does so for a single row
+ * when a caller needs one.
+ */
+public class LoanArchive {
+    // Stored for a missing return date
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_ROW = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final IdDictionary studentIds = new IdDictionary();
+    private final IdDictionary bookIds = new IdDictionary();
+
+    // Columns, one slot per row
+    private int size;
+    private int[] studentColumn = new int[INITIAL_CAPACITY];
+    private int[] bookColumn = new int[INITIAL_CAPACITY];
+    private int[] borrowDayColumn = new int[INITIAL_CAPACITY];
+    private int[] dueDayColumn = new int[INITIAL_CAPACITY];
+    private int[] returnDayColumn = new int[INITIAL_CAPACITY];
+    private long[] fineCentsColumn = new long[INITIAL_CAPACITY];
+    private long[] returnedBits = new long[INITIAL_CAPACITY / 64];
+    // Record ids as UTF-8 bytes; row i spans recordIdOffsets[i] until recordIdOffsets[i + 1]
+    private byte[] recordIdBytes = new byte[INITIAL_CAPACITY * 12];
+    private int[] recordIdOffsets = new int[INITIAL_CAPACITY + 1];
+
+    // Derived per-id aggregates, rebuilt on load rather than stored
+    private int[] nextRowOfStudent = new int[INITIAL_CAPACITY];
+    private int[] lastRowOfStudent = new int[0];
+    private int[] loansPerStudent = new int[0];
+    private long[] fineCentsPerStudent = new long[0];
+    private int[] loansPerBook = new int[0];
+    private long totalFineCents;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void append(BorrowRecord record) {
+        lock.writeLock().lock();
+        try {
+            appendUnlocked(record.getRecordId(), studentIds.idOf(record.getStudentId()), bookIds.idOf(record.getBookId()),
+                           epochDay(record.getBorrowDate()), epochDay(record.getDueDate()), epochDay(record.getReturnDate()),
+                           Math.round(record.getFineAmount() * 100), record.isReturned());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void appendUnlocked(String recordId, int student, int book, int borrowDay, int dueDay, int returnDay,
+                                long fineCents, boolean returned) {
+        ensureCapacity(size + 1);
+        int row = size;
+        studentColumn[row] = student;
+        bookColumn[row] = book;
+        borrowDayColumn[row] = borrowDay;
+        dueDayColumn[row] = dueDay;
+        returnDayColumn[row] = returnDay;
+        fineCentsColumn[row] = fineCents;
+        if (returned) {
+            returnedBits[row >>> 6] |= 1L << row;
+        }
+        byte[] id = recordId.getBytes(StandardCharsets.UTF_8);
+        int start = recordIdOffsets[row];
+        if (start + id.length > recordIdBytes.length) {
+            recordIdBytes = Arrays.copyOf(recordIdBytes, Math.max(recordIdBytes.length * 2, start + id.length));
+        }
+        System.arraycopy(id, 0, recordIdBytes, start, id.length);
+        recordIdOffsets[row + 1] = start + id.length;
+        size++;
+        index(row);
+    }
+
+    // Links the row into its student's chain and updates the aggregates
+    private void index(int row) {
+        int student = studentColumn[row];
+        int book = bookColumn[row];
+        if (student >= lastRowOfStudent.length) {
+            int capacity = Math.max(student + 1, lastRowOfStudent.length * 2);
+            int oldLength = lastRowOfStudent.length;
+            lastRowOfStudent = Arrays.copyOf(lastRowOfStudent, capacity);
+            Arrays.fill(lastRowOfStudent, oldLength, capacity, NO_ROW);
+            loansPerStudent = Arrays.copyOf(loansPerStudent, capacity);
+            fineCentsPerStudent = Arrays.copyOf(fineCentsPerStudent, capacity);
+        }
+        if (book >= loansPerBook.length) {
+            loansPerBook = Arrays.copyOf(loansPerBook, Math.max(book + 1, loansPerBook.length * 2));
+        }
+        nextRowOfStudent[row] = lastRowOfStudent[student];
+        lastRowOfStudent[student] = row;
+        loansPerStudent[student]++;
+        fineCentsPerStudent[student] += fineCentsColumn[row];
+        loansPerBook[book]++;
+        totalFineCents += fineCentsColumn[row];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= studentColumn.length) {
+            return;
+        }
+        int grown = Math.max(capacity, studentColumn.length * 2);
+        studentColumn = Arrays.copyOf(studentColumn, grown);
+        bookColumn = Arrays.copyOf(bookColumn, grown);
+        borrowDayColumn = Arrays.copyOf(borrowDayColumn, grown);
+        dueDayColumn = Arrays.copyOf(dueDayColumn, grown);
+        returnDayColumn = Arrays.copyOf(returnDayColumn, grown);
+        fineCentsColumn = Arrays.copyOf(fineCentsColumn, grown);
+        returnedBits = Arrays.copyOf(returnedBits, (grown + 63) / 64);
+        recordIdOffsets = Arrays.copyOf(recordIdOffsets, grown + 1);
+        nextRowOfStudent = Arrays.copyOf(nextRowOfStudent, grown);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Scans and aggregates
+    /**
+     * Returns the rows of a student's archived loans, newest borrow date first.
+     * Only the student's own rows are visited.
+     */
+    public int[] rowsForStudent(String studentId) {
+        lock.readLock().lock();
+        try {
+            int student = studentIds.find(studentId);
+            if (student < 0 || student >= lastRowOfStudent.length) {
+                return new int[0];
+            }
+            // Sort key: negated borrow day in the high half, row in the low half
+            long[] keys = new long[loansPerStudent[student]];
+            int count = 0;
+            for (int row = lastRowOfStudent[student]; row != NO_ROW; row = nextRowOfStudent[row]) {
+                keys[count++] = ((long) -borrowDayColumn[row] << 32) | row;
+            }
+            Arrays.sort(keys);
+            int[] rows = new int[count];
+            for (int i = 0; i < count; i++) {
+                rows[i] = (int) keys[i];
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLoanCountForStudent(String studentId) {
+        lock.readLock().lock();
+        try {
+            int student = studentIds.find(studentId);
+            return student >= 0 && student < loansPerStudent.length ? loansPerStudent[student] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getFineCentsForStudent(String studentId) {
+        lock.readLock().lock();
+        try {
+            int student = studentIds.find(studentId);
+            return student >= 0 && student < fineCentsPerStudent.length ? fineCentsPerStudent[student] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLoanCountForBook(String bookId) {
+        lock.readLock().lock();
+        try {
+            int book = bookIds.find(bookId);
+            return book >= 0 && book < loansPerBook.length ? loansPerBook[book] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Visits every book with archived loans and its loan count
+    public void forEachBookLoanCount(ObjIntConsumer<String> action) {
+        lock.readLock().lock();
+        try {
+            for (int book = 0; book < loansPerBook.length; book++) {
+                if (loansPerBook[book] > 0) {
+                    action.accept(bookIds.valueOf(book), loansPerBook[book]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getTotalFineCents() {
+        lock.readLock().lock();
+        try {
+            return totalFineCents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Scans the book column; the rows of one book are not chained
+    public int[] rowsForBook(String bookId) {
+        lock.readLock().lock();
+        try {
+            int book = bookIds.find(bookId);
+            if (book < 0 || book >= loansPerBook.length) {
+                return new int[0];
+            }
+            int[] rows = new int[loansPerBook[book]];
+            int count = 0;
+            for (int row = 0; row < size && count < rows.length; row++) {
+                if (bookColumn[row] == book) {
+                    rows[count++] = row;
+                }
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Row accessors
+    public String getRecordId(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            int start = recordIdOffsets[row];
+            return new String(recordIdBytes, start, recordIdOffsets[row + 1] - start, StandardCharsets.UTF_8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getStudentId(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return studentIds.valueOf(studentColumn[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getBookId(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return bookIds.valueOf(bookColumn[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getBorrowEpochDay(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return borrowDayColumn[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDueEpochDay(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return dueDayColumn[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getReturnEpochDay(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return returnDayColumn[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getFineCents(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return fineCentsColumn[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReturned(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            return (returnedBits[row >>> 6] & (1L << row)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Materializes a single row for callers that need the object form
+    public BorrowRecord toBorrowRecord(int row) {
+        lock.readLock().lock();
+        try {
+            checkRow(row);
+            int start = recordIdOffsets[row];
+            return new BorrowRecord(new String(recordIdBytes, start, recordIdOffsets[row + 1] - start, StandardCharsets.UTF_8),
+                                    studentIds.valueOf(studentColumn[row]), bookIds.valueOf(bookColumn[row]),
+                                    date(borrowDayColumn[row]), date(dueDayColumn[row]), date(returnDayColumn[row]),
+                                    (returnedBits[row >>> 6] & (1L << row)) != 0, fineCentsColumn[row] / 100.0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Archive row " + row + " out of range");
+        }
+    }
+
+    // Rough heap footprint of the columns and dictionaries, for monitoring
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = 4L * (studentColumn.length * 6L + recordIdOffsets.length) + 8L * (fineCentsColumn.length + returnedBits.length)
+                           + recordIdBytes.length;
+            long aggregates = 4L * (lastRowOfStudent.length * 2L + loansPerBook.length) + 8L * fineCentsPerStudent.length;
+            return columns + aggregates + studentIds.estimatedBytes() + bookIds.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Serialization - used by LibrarySnapshot; the layout is the columns in order, big-endian
+    // Returns the number of rows written
+    public int writeTo(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(size);
+            studentIds.writeTo(out);
+            bookIds.writeTo(out);
+            writeInts(out, studentColumn, size);
+            writeInts(out, bookColumn, size);
+            writeInts(out, borrowDayColumn, size);
+            writeInts(out, dueDayColumn, size);
+            writeInts(out, returnDayColumn, size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(fineCentsColumn[i]);
+            }
+            int bitWords = (size + 63) / 64;
+            for (int i = 0; i < bitWords; i++) {
+                out.writeLong(returnedBits[i]);
+            }
+            writeInts(out, recordIdOffsets, size + 1);
+            out.write(recordIdBytes, 0, recordIdOffsets[size]);
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void writeInts(DataOutput out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Loads columns written by writeTo into this empty archive, reading them
+     * in bulk from the buffer, then rebuilds the per-id aggregates.
+     */
+    public void readFrom(ByteBuffer in) {
+        lock.writeLock().lock();
+        try {
+            if (size != 0) {
+                throw new IllegalStateException("Archive must be empty before loading");
+            }
+            int rows = in.getInt();
+            studentIds.readFrom(in);
+            bookIds.readFrom(in);
+            ensureCapacity(rows);
+            readInts(in, studentColumn, rows);
+            readInts(in, bookColumn, rows);
+            readInts(in, borrowDayColumn, rows);
+            readInts(in, dueDayColumn, rows);
+            readInts(in, returnDayColumn, rows);
+            in.asLongBuffer().get(fineCentsColumn, 0, rows);
+            in.position(in.position() + 8 * rows);
+            int bitWords = (rows + 63) / 64;
+            in.asLongBuffer().get(returnedBits, 0, bitWords);
+            in.position(in.position() + 8 * bitWords);
+            readInts(in, recordIdOffsets, rows + 1);
+            recordIdBytes = new byte[Math.max(recordIdOffsets[rows], INITIAL_CAPACITY)];
+            in.get(recordIdBytes, 0, recordIdOffsets[rows]);
+            size = rows;
+            for (int row = 0; row < rows; row++) {
+                index(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void readInts(ByteBuffer in, int[] target, int count) {
+        in.asIntBuffer().get(target, 0, count);
+        in.position(in.position() + 4 * count);
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : NO_DATE;
+    }
+
+    private static LocalDate date(int epochDay) {
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    // Maps each distinct id string to a dense int
+    private static class IdDictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        int find(String value) {
+            Integer id = ids.get(value);
+            return id != null ? id : -1;
+        }
+
+        String valueOf(int id) {
+            return values.get(id);
+        }
+
+        long estimatedBytes() {
+            long bytes = 0;
+            for (String value : values) {
+                bytes += 64 + value.length(); // entry, boxed id and string
+            }
+            return bytes;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        void readFrom(ByteBuffer in) {
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                idOf(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
\ No newline at end of file
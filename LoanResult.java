@@ -0,0 +1,48 @@
+/**
+ * LoanResult is the outcome of a transactional borrow, return or renew operation
+ */
+public class LoanResult {
+    public enum Status {
+        SUCCESS,
+        STUDENT_NOT_FOUND,
+        BORROW_LIMIT_REACHED,
+        BOOK_NOT_FOUND,
+        BOOK_UNAVAILABLE,
+        NO_ACTIVE_LOAN,
+        TOO_OVERDUE,
+        FAILED
+    }
+    
+    private final Status status;
+    private final BorrowRecord record;
+    // The hold a returned copy went to, if one was waiting
+    private final Hold promotedHold;
+    
+    private LoanResult(Status status, BorrowRecord record, Hold promotedHold) {
+        this.status = status;
+        this.record = record;
+        this.promotedHold = promotedHold;
+    }
+    
+    public static LoanResult success(BorrowRecord record) {
+        return new LoanResult(Status.SUCCESS, record, null);
+    }
+    
+    public static LoanResult success(BorrowRecord record, Hold promotedHold) {
+        return new LoanResult(Status.SUCCESS, record, promotedHold);
+    }
+    
+    public static LoanResult failure(Status status) {
+        return new LoanResult(status, null, null);
+    }
+    
+    public Status getStatus() { return status; }
+    public BorrowRecord getRecord() { return record; }
+    public Hold getPromotedHold() { return promotedHold; }
+    public boolean isSuccess() { return status == Status.SUCCESS; }
+    
+    @Override
+    public String toString() {
+        return String.format("LoanResult{Status=%s, Record=%s}", status, record);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * MultiVersionMap keeps, for each key, its values as a newest-first chain of
+ * versions stamped by a VersionClock. Writers read and replace the newest
+ * value under their own entity locks; readers holding a pinned version walk
+ * the chain to the value that was current at that version, without locks.
+ *
+ * Values must not be modified once stored - a change stores a new object -
+ * so a reader may hand them out or copy them at any time. A removal stores
+ * a null value as a tombstone until no reader can see past it.
+ */
+public class MultiVersionMap<V> {
+    private final ConcurrentHashMap<String, Version<V>> heads = new ConcurrentHashMap<>();
+    private final VersionClock clock;
+    // Keys whose newest value is not a tombstone
+    private final AtomicInteger size = new AtomicInteger();
+
+    public MultiVersionMap(VersionClock clock) {
+        this.clock = clock;
+    }
+
+    // Newest value, including writes still in progress; for writers holding the key's lock
+    public V get(String key) {
+        Version<V> head = heads.get(key);
+        return head != null ? head.value : null;
+    }
+
+    public boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public Stream<String> keys() {
+        return heads.entrySet().stream().filter(entry -> entry.getValue().value != null).map(entry -> entry.getKey());
+    }
+
+    public Stream<V> values() {
+        return heads.values().stream().map(head -> head.value).filter(Objects::nonNull);
+    }
+
+    // The value current at the pinned version, or null if the key did not exist then
+    public V get(String key, long readVersion) {
+        return valueAt(heads.get(key), readVersion);
+    }
+
+    public Stream<V> values(long readVersion) {
+        return heads.values().stream().map(head -> valueAt(head, readVersion)).filter(Objects::nonNull);
+    }
+
+    private static <V> V valueAt(Version<V> version, long readVersion) {
+        for (; version != null; version = version.previous) {
+            if (version.version <= readVersion) {
+                return version.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the value as of the given write version and returns the newest
+     * value it replaces. Writes at VersionClock.BASE replace the whole chain.
+     */
+    public V put(String key, V value, long version) {
+        Objects.requireNonNull(value);
+        return store(key, value, version);
+    }
+
+    // Stores a tombstone; returns the value it replaces, or null if there was none
+    public V remove(String key, long version) {
+        return store(key, null, version);
+    }
+
+    private V store(String key, V value, long version) {
+        Version<V> head = heads.get(key);
+        V previous = head != null ? head.value : null;
+        if (previous == null && value == null) {
+            return null;
+        }
+        if (version == VersionClock.BASE) {
+            if (value != null) {
+                heads.put(key, new Version<>(value, version, null));
+            } else {
+                heads.remove(key);
+            }
+        } else {
+            heads.compute(key, (k, current) -> new Version<>(value, version, current));
+            clock.retire(version, oldest -> trim(key, oldest));
+        }
+        if (previous == null) {
+            size.incrementAndGet();
+        } else if (value == null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    // Drops the versions no reader can reach: those older than the one visible at the oldest readable version
+    private void trim(String key, long oldestReadable) {
+        heads.computeIfPresent(key, (k, head) -> {
+            for (Version<V> version = head; version != null; version = version.previous) {
+                if (version.version <= oldestReadable) {
+                    version.previous = null;
+                    break;
+                }
+            }
+            return head.value == null && head.version <= oldestReadable ? null : head;
+        });
+    }
+
+    private static class Version<V> {
+        private final V value;
+        private final long version;
+        // Cut once no reader can reach the older versions
+        private volatile Version<V> previous;
+
+        Version(V value, long version, Version<V> previous) {
+            this.value = value;
+            this.version = version;
+            this.previous = previous;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Page holds one page of a keyset-paginated listing together with an opaque
+ * continuation token that resumes the listing right after the last item.
+ */
+public class Page<T> {
+    // Separates the sort value from the id inside a token; sorts below any printable character
+    static final char KEY_SEPARATOR = '\u0000';
+
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextToken() { return nextToken; }
+    public boolean hasMore() { return nextToken != null; }
+
+    // Token helpers - a token encodes the (sort value, id) of the last item returned
+    static String encodeToken(String sortValue, String id) {
+        String key = (sortValue != null ? sortValue : "") + KEY_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns {sortValue, id} for a token, or null for the first page.
+     */
+    static String[] decodeToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid page token", ex);
+        }
+        int separator = key.lastIndexOf(KEY_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        return new String[] { key.substring(0, separator), key.substring(separator + 1) };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Page{Items=%d, HasMore=%s}", items.size(), hasMore());
+    }
+}
\ No newline at end of file
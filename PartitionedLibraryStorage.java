@@ -0,0 +1,468 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * PartitionedLibraryStorage runs the writes of a LibraryStorage on shards, in
+ * the style of actors. Students and books are hash-partitioned by id across N
+ * shards, each owned by one worker thread that takes operations from its
+ * mailbox one at a time. All changes to an entity therefore run on the same
+ * thread in the order they were submitted.
+ *
+ * Student and book changes run on the owner of that id. Loans belong to the
+ * student: borrow, return and renew run on the student's shard, and the
+ * storage applies the book side in the same atomic operation under that
+ * book's own stripe or row lock. A borrow that crosses shards needs no
+ * further coordination and nothing is locked library-wide.
+ *
+ * Shards use the same id hash as the lock stripes of InMemoryDatabaseManager.
+ * With a power-of-two shard count of at most 64, each student stripe is only
+ * ever taken by its shard's worker and never contended.
+ *
+ * Reads do not need ordering and run on the caller's thread. A caller waits
+ * for its own writes, so it always reads what it wrote. Mailboxes are bounded,
+ * so a shard that falls behind slows its callers down rather than queueing
+ * without limit.
+ */
+public class PartitionedLibraryStorage implements LibraryStorage {
+    private static final Logger LOGGER = Logger.getLogger(PartitionedLibraryStorage.class.getName());
+    private static final int MAILBOX_CAPACITY = 4096;
+    
+    private final LibraryStorage storage;
+    private final Shard[] shards;
+    
+    public PartitionedLibraryStorage(LibraryStorage storage) {
+        this(storage, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public PartitionedLibraryStorage(LibraryStorage storage, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        this.storage = storage;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+    
+    // Routing
+    private Shard shardOf(String id) {
+        int hash = id != null ? id.hashCode() : 0;
+        // Same spreading as the lock stripes, so shards line up with them
+        hash ^= (hash >>> 16);
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+    
+    // Runs the operation on the id's shard and waits for its result
+    private <T> T call(String id, Supplier<T> operation) {
+        Shard shard = shardOf(id);
+        if (Thread.currentThread() == shard.worker) {
+            return operation.get(); // already on the owner, e.g. a nested call
+        }
+        return await(shard.submit(operation));
+    }
+    
+    // Waits for a shard's result and rethrows the backend's own RuntimeException
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+    
+    // Splits a bulk insert by shard, runs the parts in parallel and reassembles the results in input order
+    private <T> boolean[] callPartitioned(List<T> items, Function<T, String> idOf, Function<List<T>, boolean[]> insert) {
+        List<List<Integer>> positions = new ArrayList<>();
+        List<List<T>> parts = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            positions.add(new ArrayList<>());
+            parts.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            int shard = shardOf(idOf.apply(items.get(i))).index;
+            positions.get(shard).add(i);
+            parts.get(shard).add(items.get(i));
+        }
+        List<CompletableFuture<boolean[]>> results = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            List<T> part = parts.get(i);
+            results.add(part.isEmpty() ? CompletableFuture.completedFuture(new boolean[0])
+                                       : shards[i].submit(() -> insert.apply(part)));
+        }
+        boolean[] inserted = new boolean[items.size()];
+        for (int i = 0; i < shards.length; i++) {
+            boolean[] partResult = await(results.get(i));
+            for (int j = 0; j < partResult.length; j++) {
+                inserted[positions.get(i).get(j)] = partResult[j];
+            }
+        }
+        return inserted;
+    }
+    
+    // Student operations
+    public boolean addStudent(Student student) {
+        return call(student.getStudentId(), () -> storage.addStudent(student));
+    }
+    
+    public boolean updateStudent(Student student) {
+        return call(student.getStudentId(), () -> storage.updateStudent(student));
+    }
+    
+    public boolean deleteStudent(String studentId) {
+        return call(studentId, () -> storage.deleteStudent(studentId));
+    }
+    
+    public Student getStudent(String studentId) {
+        return storage.getStudent(studentId);
+    }
+    
+    public List<Student> getAllStudents() {
+        return storage.getAllStudents();
+    }
+    
+    public Stream<Student> streamAllStudents() {
+        return storage.streamAllStudents();
+    }
+    
+    public Page<Student> getStudentsPage(String pageToken, int pageSize) {
+        return storage.getStudentsPage(pageToken, pageSize);
+    }
+    
+    // Book operations
+    public boolean addBook(Book book) {
+        return call(book.getBookId(), () -> storage.addBook(book));
+    }
+    
+    public boolean updateBook(Book book) {
+        return call(book.getBookId(), () -> storage.updateBook(book));
+    }
+    
+    public boolean deleteBook(String bookId) {
+        return call(bookId, () -> storage.deleteBook(bookId));
+    }
+    
+    public Book getBook(String bookId) {
+        return storage.getBook(bookId);
+    }
+    
+    public List<Book> getAllBooks() {
+        return storage.getAllBooks();
+    }
+    
+    public List<Book> searchBooks(String keyword) {
+        return storage.searchBooks(keyword);
+    }
+    
+    public List<Book> getBooksByGenre(String genre) {
+        return storage.getBooksByGenre(genre);
+    }
+    
+    public List<Book> getBooksByAuthor(String author) {
+        return storage.getBooksByAuthor(author);
+    }
+    
+    public List<String> autocomplete(String prefix, int limit) {
+        return storage.autocomplete(prefix, limit);
+    }
+    
+    public Stream<Book> streamAllBooks() {
+        return storage.streamAllBooks();
+    }
+    
+    public Stream<Book> streamAvailableBooks() {
+        return storage.streamAvailableBooks();
+    }
+    
+    public Page<Book> getBooksPage(String pageToken, int pageSize) {
+        return storage.getBooksPage(pageToken, pageSize);
+    }
+    
+    // Borrow record operations - owned by the student's shard
+    public boolean addBorrowRecord(BorrowRecord record) {
+        return call(record.getStudentId(), () -> storage.addBorrowRecord(record));
+    }
+    
+    public boolean updateBorrowRecord(BorrowRecord record) {
+        return call(record.getStudentId(), () -> storage.updateBorrowRecord(record));
+    }
+    
+    public List<BorrowRecord> getBorrowRecordsByStudent(String studentId) {
+        return storage.getBorrowRecordsByStudent(studentId);
+    }
+    
+    public List<BorrowRecord> getBorrowRecordsByBook(String bookId) {
+        return storage.getBorrowRecordsByBook(bookId);
+    }
+    
+    public Stream<BorrowRecord> streamBorrowRecordsByStudent(String studentId) {
+        return storage.streamBorrowRecordsByStudent(studentId);
+    }
+    
+    public Stream<BorrowRecord> streamActiveBorrowRecordsByStudent(String studentId) {
+        return storage.streamActiveBorrowRecordsByStudent(studentId);
+    }
+    
+    public List<BorrowRecord> getOverdueRecords() {
+        return storage.getOverdueRecords();
+    }
+    
+    public List<BorrowRecord> getRecordsDueWithin(int days) {
+        return storage.getRecordsDueWithin(days);
+    }
+    
+    // Bulk operations
+    public boolean[] addBooks(List<Book> books) {
+        return callPartitioned(books, Book::getBookId, storage::addBooks);
+    }
+    
+    public boolean[] addStudents(List<Student> students) {
+        return callPartitioned(students, Student::getStudentId, storage::addStudents);
+    }
+    
+    // Atomic loan operations
+    public LoanResult borrowBook(BorrowRecord record) {
+        return call(record.getStudentId(), () -> storage.borrowBook(record));
+    }
+    
+    public LoanResult returnBook(String studentId, String bookId) {
+        return call(studentId, () -> storage.returnBook(studentId, bookId));
+    }
+    
+    public LoanResult renewBook(String studentId, String bookId, int additionalDays, int maxDaysOverdue) {
+        return call(studentId, () -> storage.renewBook(studentId, bookId, additionalDays, maxDaysOverdue));
+    }
+    
+    public List<LoanResult> borrowBooks(List<BorrowRecord> records) {
+        if (records.isEmpty()) {
+            return storage.borrowBooks(records);
+        }
+        return call(records.get(0).getStudentId(), () -> storage.borrowBooks(records));
+    }
+    
+    public List<LoanResult> returnBooks(String studentId, List<String> bookIds) {
+        return call(studentId, () -> storage.returnBooks(studentId, bookIds));
+    }
+    
+    // Hold queues - placing and cancelling run on the student's shard like loans
+    public HoldResult placeHold(Hold hold) {
+        return call(hold.getStudentId(), () -> storage.placeHold(hold));
+    }
+    
+    public HoldResult cancelHold(String studentId, String bookId) {
+        return call(studentId, () -> storage.cancelHold(studentId, bookId));
+    }
+    
+    public List<Hold> getHoldsByBook(String bookId) {
+        return storage.getHoldsByBook(bookId);
+    }
+    
+    public List<Hold> getHoldsByStudent(String studentId) {
+        return storage.getHoldsByStudent(studentId);
+    }
+    
+    // Expiry walks every book's queue; the storage's own locks order it with the shards
+    public int expireHolds(LocalDate asOf) {
+        return storage.expireHolds(asOf);
+    }
+    
+    // Fine accrual covers loans of every student; the storage's own stripe or row locks order it with the shards
+    public Page<BorrowRecord> accrueFines(LocalDate asOf, String pageToken, int chunkSize) {
+        return storage.accrueFines(asOf, pageToken, chunkSize);
+    }
+    
+    // Aggregate statistics
+    public LibraryManager.LibraryStatistics computeLibraryStatistics() {
+        return storage.computeLibraryStatistics();
+    }
+    
+    public LibraryManager.OverdueSummary getOverdueSummary() {
+        return storage.getOverdueSummary();
+    }
+    
+    // Utility methods
+    public int getTotalStudents() {
+        return storage.getTotalStudents();
+    }
+    
+    public int getTotalBooks() {
+        return storage.getTotalBooks();
+    }
+    
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    public PartitionStatistics getStatistics() {
+        long processed = 0;
+        int queued = 0;
+        int busiest = 0;
+        for (Shard shard : shards) {
+            processed += shard.processed.get();
+            queued += shard.mailbox.size();
+            busiest = Math.max(busiest, shard.mailbox.size());
+        }
+        return new PartitionStatistics(shards.length, processed, queued, busiest);
+    }
+    
+    // Lets every shard finish what is already in its mailbox, then closes the storage
+    public void closeConnection() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        for (Shard shard : shards) {
+            shard.awaitStopped();
+        }
+        storage.closeConnection();
+    }
+    
+    // One worker thread and its mailbox
+    private static class Shard {
+        private static final Operation<Void> STOP = new Operation<>(() -> null);
+        
+        private final int index;
+        private final BlockingQueue<Operation<?>> mailbox = new ArrayBlockingQueue<>(MAILBOX_CAPACITY);
+        private final AtomicLong processed = new AtomicLong();
+        private final Thread worker;
+        private volatile boolean stopped;
+        
+        Shard(int index) {
+            this.index = index;
+            this.worker = new Thread(this::run, "library-shard-" + index);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        
+        <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+            Operation<T> operation = new Operation<>(supplier);
+            if (stopped) {
+                operation.reject(index);
+                return operation.result;
+            }
+            enqueue(operation);
+            // Stopped meanwhile: the worker may already have drained its mailbox, so take the operation back
+            if (stopped && mailbox.remove(operation)) {
+                operation.reject(index);
+            }
+            return operation.result;
+        }
+        
+        private void enqueue(Operation<?> task) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mailbox.put(task);
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        private void run() {
+            while (true) {
+                Operation<?> task;
+                try {
+                    task = mailbox.take();
+                } catch (InterruptedException ex) {
+                    continue; // only STOP ends the worker, so queued operations are never dropped
+                }
+                if (task == STOP) {
+                    // Operations that raced closeConnection and landed behind STOP fail instead of waiting forever
+                    Operation<?> late;
+                    while ((late = mailbox.poll()) != null) {
+                        late.reject(index);
+                    }
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.SEVERE, "Shard " + index + " operation failed", ex);
+                }
+                processed.incrementAndGet();
+            }
+        }
+        
+        void stop() {
+            stopped = true;
+            enqueue(STOP);
+        }
+        
+        void awaitStopped() {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    // A queued call and the future its caller waits on
+    private static class Operation<T> {
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        
+        Operation(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+        
+        void run() {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+        
+        void reject(int index) {
+            result.completeExceptionally(new IllegalStateException("Library shard " + index + " is closed"));
+        }
+    }
+    
+    public static class PartitionStatistics {
+        private final int shardCount;
+        private final long processedOperations;
+        private final int queuedOperations;
+        private final int largestMailbox;
+        
+        public PartitionStatistics(int shardCount, long processedOperations, int queuedOperations, int largestMailbox) {
+            this.shardCount = shardCount;
+            this.processedOperations = processedOperations;
+            this.queuedOperations = queuedOperations;
+            this.largestMailbox = largestMailbox;
+        }
+        
+        public int getShardCount() { return shardCount; }
+        public long getProcessedOperations() { return processedOperations; }
+        public int getQueuedOperations() { return queuedOperations; }
+        public int getLargestMailbox() { return largestMailbox; }
+        
+        @Override
+        public String toString() {
+            return String.format("Partition Statistics:\n" +
+                               "- Shards: %d\n" +
+                               "- Processed Operations: %d\n" +
+                               "- Queued Operations: %d\n" +
+                               "- Largest Mailbox: %d",
+                               shardCount, processedOperations, queuedOperations, largestMailbox);
+        }
+    }
+}
\ No newline at end of file
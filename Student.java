@@ -38,6 +38,17 @@ public class Student {
         this.currentBorrowCount = 0;
     }
     
+    // Copy constructor
+    public Student(Student other) {
+        this.studentId = other.studentId;
+        this.studentName = other.studentName;
+        this.email = other.email;
+        this.address = other.address;
+        this.phoneNumber = other.phoneNumber;
+        this.maxBorrowLimit = other.maxBorrowLimit;
+        this.currentBorrowCount = other.currentBorrowCount;
+    }
+    
     // Getters
     public String getStudentId() { return studentId; }
     public String getStudentName() { return studentName; }
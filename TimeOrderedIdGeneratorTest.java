@@ -0,0 +1,66 @@
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that ids stay unique across several generators and managers in one
+ * process. Run with: java TimeOrderedIdGeneratorTest
+ */
+public class TimeOrderedIdGeneratorTest {
+    private static final int IDS_PER_THREAD = 20_000;
+    
+    public static void main(String[] args) throws Exception {
+        defaultManagersShareOneGenerator();
+        generatorsWithDistinctNodesNeverCollide();
+        concurrentCallsAcrossGeneratorsAreUnique();
+        System.out.println("TimeOrderedIdGeneratorTest passed");
+    }
+    
+    // Two managers built with the default constructor must not draw from separate counters
+    private static void defaultManagersShareOneGenerator() {
+        IdGenerator first = new LibraryManager(null).getIdGenerator();
+        IdGenerator second = new LibraryManager(null).getIdGenerator();
+        check(first == second, "default managers must share the process-wide generator");
+    }
+    
+    // Same thread, same stripe and a frozen clock: only the node bits can tell the ids apart
+    private static void generatorsWithDistinctNodesNeverCollide() {
+        long now = System.currentTimeMillis();
+        TimeOrderedIdGenerator a = new TimeOrderedIdGenerator(1, () -> now);
+        TimeOrderedIdGenerator b = new TimeOrderedIdGenerator(2, () -> now);
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < IDS_PER_THREAD; i++) {
+            check(ids.add(a.nextId(IdGenerator.Kind.BORROW_RECORD)), "duplicate id from node 1");
+            check(ids.add(b.nextId(IdGenerator.Kind.BORROW_RECORD)), "duplicate id from node 2");
+        }
+    }
+    
+    private static void concurrentCallsAcrossGeneratorsAreUnique() throws InterruptedException {
+        IdGenerator[] generators = { TimeOrderedIdGenerator.processWide(), new TimeOrderedIdGenerator(7) };
+        int threads = 4;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads * generators.length);
+        for (IdGenerator generator : generators) {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids.add(generator.nextId(IdGenerator.Kind.HOLD));
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        check(executor.awaitTermination(1, TimeUnit.MINUTES), "id generation timed out");
+        check(ids.size() == threads * generators.length * IDS_PER_THREAD,
+              "expected " + threads * generators.length * IDS_PER_THREAD + " unique ids, got " + ids.size());
+    }
+    
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
\ No newline at end of file
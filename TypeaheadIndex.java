@@ -0,0 +1,449 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TypeaheadIndex answers search-box autocompletion over book titles and author
+ * names. Each title and author is a suggestion, reachable in a character trie
+ * from the start of every word, so "gat" completes "The Great Gatsby".
+ *
+ * Suggestions are ranked by popularity: the number of loans of the books they
+ * belong to. Every trie node caches the best suggestions below it, so a query
+ * walks the prefix and copies that cache without visiting the subtree.
+ * Books and loans update the caches incrementally along the affected paths.
+ *
+ * Loans arrive on every borrow, so addLoans takes no lock: it only adds to a
+ * per-book counter. Pending loans are folded into the rankings in one batch
+ * by the next index change, or by the next query that finds the index free,
+ * so a borrow never waits for the typeahead and a query never waits for a
+ * ranking update.
+ */
+public class TypeaheadIndex {
+    // Size of each node's cached ranking, and therefore the largest limit served
+    public static final int MAX_RESULTS = 10;
+    // Longer titles are indexed only up to this many characters from each word start
+    private static final int MAX_KEY_LENGTH = 48;
+
+    private static final Comparator<Suggestion> RANKING = (a, b) -> {
+        int byScore = Long.compare(b.score, a.score);
+        return byScore != 0 ? byScore : a.key.compareTo(b.key);
+    };
+
+    private final Node root = new Node();
+    // normalized text -> suggestion
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+    // bookId -> the title and author suggestions the book contributes to
+    private final Map<String, Suggestion[]> bookSuggestions = new HashMap<>();
+    // bookId -> loans; kept for books not indexed yet, e.g. while loading
+    private final Map<String, Long> popularity = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // bookId -> loans not yet applied to the rankings
+    private final ConcurrentHashMap<String, LongAdder> pendingLoans = new ConcurrentHashMap<>();
+    // Set after a loan is counted, cleared before pending loans are applied
+    private volatile boolean loansPending;
+
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            applyPendingLoans();
+            removeUnlocked(book.getBookId());
+            long loans = popularity.getOrDefault(book.getBookId(), 0L);
+            List<Suggestion> added = new ArrayList<>(2);
+            for (String text : new String[] { book.getTitle(), book.getAuthor() }) {
+                String key = normalize(text);
+                if (key.isEmpty()) {
+                    continue;
+                }
+                Suggestion suggestion = suggestions.get(key);
+                if (suggestion == null) {
+                    suggestion = new Suggestion(key, text.trim());
+                    suggestions.put(key, suggestion);
+                    link(suggestion);
+                }
+                if (added.contains(suggestion)) {
+                    continue; // title and author are the same text
+                }
+                suggestion.books++;
+                suggestion.score += loans;
+                promote(suggestion);
+                added.add(suggestion);
+            }
+            bookSuggestions.put(book.getBookId(), added.toArray(new Suggestion[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            applyPendingLoans();
+            removeUnlocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Counts loans of a book towards the ranking of its title and author; applied by a later index change or query
+    public void addLoans(String bookId, long loans) {
+        if (loans == 0) {
+            return;
+        }
+        pendingLoans.computeIfAbsent(bookId, id -> new LongAdder()).add(loans);
+        loansPending = true;
+    }
+
+    // Applies the pending loans now if no one else holds the index; never blocks
+    private void tryApplyPendingLoans() {
+        if (!loansPending || !lock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            applyPendingLoans();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock; each book's loans re-rank its paths once however many there were
+    private void applyPendingLoans() {
+        if (!loansPending) {
+            return;
+        }
+        loansPending = false;
+        for (Map.Entry<String, LongAdder> entry : pendingLoans.entrySet()) {
+            long loans = entry.getValue().sumThenReset();
+            if (loans == 0) {
+                continue;
+            }
+            popularity.merge(entry.getKey(), loans, Long::sum);
+            Suggestion[] affected = bookSuggestions.get(entry.getKey());
+            if (affected == null) {
+                continue;
+            }
+            for (Suggestion suggestion : affected) {
+                suggestion.score += loans;
+                if (loans > 0) {
+                    promote(suggestion);
+                } else {
+                    demote(suggestion);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.clear();
+            suggestions.clear();
+            bookSuggestions.clear();
+            popularity.clear();
+            pendingLoans.clear();
+            loansPending = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return suggestions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit completions of the prefix, most borrowed first.
+     * Costs one step per prefix character plus copying the cached ranking.
+     */
+    public List<String> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<String> result = new ArrayList<>();
+        if (key.isEmpty() || limit <= 0) {
+            return result;
+        }
+        tryApplyPendingLoans();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node != null) {
+                for (int i = 0; i < node.topCount && result.size() < limit; i++) {
+                    result.add(node.top[i].text);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(String bookId) {
+        Suggestion[] previous = bookSuggestions.remove(bookId);
+        if (previous == null) {
+            return;
+        }
+        long loans = popularity.getOrDefault(bookId, 0L);
+        for (Suggestion suggestion : previous) {
+            suggestion.books--;
+            suggestion.score -= loans;
+            if (suggestion.books == 0) {
+                suggestions.remove(suggestion.key);
+                unlink(suggestion);
+            } else {
+                demote(suggestion);
+            }
+        }
+    }
+
+    // Trie maintenance
+    // Adds the suggestion as a terminal at the end of every word-start path
+    private void link(Suggestion suggestion) {
+        for (int start : wordStarts(suggestion.key)) {
+            Node node = root;
+            int end = Math.min(suggestion.key.length(), start + MAX_KEY_LENGTH);
+            for (int i = start; i < end; i++) {
+                node = node.childOrCreate(suggestion.key.charAt(i));
+            }
+            node.addTerminal(suggestion);
+        }
+    }
+
+    // Removes the suggestion from every path, then re-ranks and prunes bottom-up
+    private void unlink(Suggestion suggestion) {
+        List<Node[]> paths = paths(suggestion);
+        for (Node[] path : paths) {
+            path[path.length - 1].removeTerminal(suggestion);
+        }
+        for (Node[] path : paths) {
+            for (int i = path.length - 1; i >= 0; i--) {
+                path[i].rerank();
+                if (i > 0 && path[i].isEmpty()) {
+                    path[i - 1].removeChild(path[i]);
+                }
+            }
+        }
+    }
+
+    // A higher score can only move the suggestion up, so each node on its paths just re-offers it
+    private void promote(Suggestion suggestion) {
+        for (Node[] path : paths(suggestion)) {
+            for (Node node : path) {
+                node.offer(suggestion);
+            }
+        }
+    }
+
+    // A lower score may let another suggestion in, so affected nodes re-rank from their children
+    private void demote(Suggestion suggestion) {
+        for (Node[] path : paths(suggestion)) {
+            for (int i = path.length - 1; i >= 0; i--) {
+                if (path[i].ranks(suggestion)) {
+                    path[i].rerank();
+                }
+            }
+        }
+    }
+
+    // The nodes from the root to the end of each of the suggestion's paths
+    private List<Node[]> paths(Suggestion suggestion) {
+        List<Node[]> paths = new ArrayList<>();
+        for (int start : wordStarts(suggestion.key)) {
+            int end = Math.min(suggestion.key.length(), start + MAX_KEY_LENGTH);
+            Node[] path = new Node[end - start + 1];
+            path[0] = root;
+            for (int i = start; i < end && path[i - start] != null; i++) {
+                path[i - start + 1] = path[i - start].child(suggestion.key.charAt(i));
+            }
+            if (path[path.length - 1] != null) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private static int[] wordStarts(String key) {
+        int[] starts = new int[key.length()];
+        int count = 0;
+        for (int i = 0; i < key.length(); i++) {
+            if (i == 0 || key.charAt(i - 1) == ' ') {
+                starts[count++] = i;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    // Lowercase words separated by single spaces, so "The  Great-Gatsby" and "the great gatsby" match
+    static String normalize(String text) {
+        return String.join(" ", BookSearchIndex.tokenize(text));
+    }
+
+    private static class Suggestion {
+        private final String key;
+        private final String text;
+        private long score;
+        private int books;
+
+        Suggestion(String key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    // Trie node with sorted child characters and a cached ranking of its subtree
+    private static class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+        private char label;
+        private char[] childLabels = new char[0];
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] terminals = NO_SUGGESTIONS;
+        private final Suggestion[] top = new Suggestion[MAX_RESULTS];
+        private int topCount;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(childLabels, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(childLabels, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node node = new Node();
+            node.label = c;
+            char[] labels = new char[childLabels.length + 1];
+            Node[] nodes = new Node[children.length + 1];
+            System.arraycopy(childLabels, 0, labels, 0, insertAt);
+            System.arraycopy(children, 0, nodes, 0, insertAt);
+            labels[insertAt] = c;
+            nodes[insertAt] = node;
+            System.arraycopy(childLabels, insertAt, labels, insertAt + 1, childLabels.length - insertAt);
+            System.arraycopy(children, insertAt, nodes, insertAt + 1, children.length - insertAt);
+            childLabels = labels;
+            children = nodes;
+            return node;
+        }
+
+        void removeChild(Node node) {
+            int index = Arrays.binarySearch(childLabels, node.label);
+            if (index < 0 || children[index] != node) {
+                return;
+            }
+            char[] labels = new char[childLabels.length - 1];
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(childLabels, 0, labels, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            System.arraycopy(childLabels, index + 1, labels, index, labels.length - index);
+            System.arraycopy(children, index + 1, nodes, index, nodes.length - index);
+            childLabels = labels;
+            children = nodes;
+        }
+
+        void addTerminal(Suggestion suggestion) {
+            for (Suggestion terminal : terminals) {
+                if (terminal == suggestion) {
+                    return;
+                }
+            }
+            terminals = Arrays.copyOf(terminals, terminals.length + 1);
+            terminals[terminals.length - 1] = suggestion;
+        }
+
+        void removeTerminal(Suggestion suggestion) {
+            for (int i = 0; i < terminals.length; i++) {
+                if (terminals[i] == suggestion) {
+                    Suggestion[] remaining = new Suggestion[terminals.length - 1];
+                    System.arraycopy(terminals, 0, remaining, 0, i);
+                    System.arraycopy(terminals, i + 1, remaining, i, remaining.length - i);
+                    terminals = remaining;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return children.length == 0 && terminals.length == 0;
+        }
+
+        boolean ranks(Suggestion suggestion) {
+            for (int i = 0; i < topCount; i++) {
+                if (top[i] == suggestion) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Inserts or moves the suggestion within the cached ranking
+        void offer(Suggestion suggestion) {
+            int at = -1;
+            for (int i = 0; i < topCount; i++) {
+                if (top[i] == suggestion) {
+                    at = i;
+                    break;
+                }
+            }
+            if (at < 0) {
+                if (topCount == MAX_RESULTS && RANKING.compare(suggestion, top[topCount - 1]) >= 0) {
+                    return;
+                }
+                at = topCount < MAX_RESULTS ? topCount++ : topCount - 1;
+                top[at] = suggestion;
+            }
+            // Bubble towards the front; scores only grow here
+            while (at > 0 && RANKING.compare(top[at], top[at - 1]) < 0) {
+                Suggestion swap = top[at - 1];
+                top[at - 1] = top[at];
+                top[at] = swap;
+                at--;
+            }
+        }
+
+        // Rebuilds the ranking from the terminals here and the children's rankings
+        void rerank() {
+            List<Suggestion> candidates = new ArrayList<>(Arrays.asList(terminals));
+            for (Node child : children) {
+                for (int i = 0; i < child.topCount; i++) {
+                    candidates.add(child.top[i]);
+                }
+            }
+            candidates.sort(RANKING);
+            Arrays.fill(top, null);
+            topCount = 0;
+            Suggestion last = null;
+            for (Suggestion candidate : candidates) {
+                if (topCount == MAX_RESULTS) {
+                    break;
+                }
+                if (candidate != last) {
+                    top[topCount++] = candidate;
+                    last = candidate;
+                }
+            }
+        }
+
+        void clear() {
+            childLabels = new char[0];
+            children = NO_CHILDREN;
+            terminals = NO_SUGGESTIONS;
+            Arrays.fill(top, null);
+            topCount = 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * VersionClock orders writes for multi-version reads of MultiVersionMap.
+ *
+ * Every write operation takes the next version and stamps all the values it
+ * stores with it. A reader pins the newest version whose writes have all
+ * finished and reads every map as of that version. It sees each write
+ * entirely or not at all, takes no entity locks and never delays a writer.
+ *
+ * A value that a write replaces is retired with that write's version. It is
+ * released once every pinned reader and every reader that could still pin
+ * is at that version or later, so old versions live only as long as the
+ * reports that need them.
+ *
+ * No lock is shared by writers or readers. A version is an atomic increment.
+ * A finished write adds its version to a concurrent set, and the visible
+ * version moves forward over the finished versions that follow it without
+ * gaps. A reader registers its pin in a concurrent map and retries if a
+ * release may already have passed its version without seeing the pin.
+ */
+public class VersionClock {
+    // Version of entities loaded at startup; visible to every reader and never retired
+    public static final long BASE = 0;
+
+    private final AtomicLong lastVersion = new AtomicLong(BASE);
+    // Every write at or below this version has finished; never decreases
+    private final AtomicLong visibleVersion = new AtomicLong(BASE);
+    // Finished versions above the visible one, waiting for an earlier write to finish
+    private final ConcurrentSkipListSet<Long> finishedAhead = new ConcurrentSkipListSet<>();
+    // Pinned version -> readers holding it
+    private final ConcurrentSkipListMap<Long, Integer> pins = new ConcurrentSkipListMap<>();
+    // Newest visible version a release has started from; a pin below it may not have been seen
+    private final AtomicLong releaseHorizon = new AtomicLong(BASE);
+
+    private final Queue<Retired> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retiredCount = new AtomicInteger();
+    private final AtomicLong releasedCount = new AtomicLong();
+    // Only one thread releases at a time; others leave the work to it
+    private final ReentrantLock releaseLock = new ReentrantLock();
+
+    public long beginWrite() {
+        return lastVersion.incrementAndGet();
+    }
+
+    public void endWrite(long version) {
+        finishedAhead.add(version);
+        advanceVisible();
+        releaseRetired();
+    }
+
+    /**
+     * Moves the visible version over the finished versions right after it.
+     * Only the thread that removes the next version from the set may move
+     * past it, so the mark never skips a running write or goes backwards; a
+     * version finished after this thread looked is picked up by its writer.
+     */
+    private void advanceVisible() {
+        long visible = visibleVersion.get();
+        while (finishedAhead.remove(visible + 1)) {
+            visibleVersion.set(++visible);
+        }
+    }
+
+    // Pins the newest fully written version; close the view to unpin it
+    public ReadView pin() {
+        while (true) {
+            long version = visibleVersion.get();
+            pins.merge(version, 1, Integer::sum);
+            // A release that started from a newer version may have missed this pin and trimmed past it
+            if (version >= releaseHorizon.get()) {
+                return new ReadView(version);
+            }
+            removePin(version);
+        }
+    }
+
+    private void unpin(long version) {
+        removePin(version);
+        releaseRetired();
+    }
+
+    private void removePin(long version) {
+        pins.computeIfPresent(version, (v, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * The oldest version a current or future reader can ask for. The horizon
+     * is raised before the pins are read, so a reader pinning concurrently
+     * either is seen here or sees the horizon and pins a newer version.
+     */
+    public long oldestReadable() {
+        long visible = visibleVersion.get();
+        releaseHorizon.accumulateAndGet(visible, Math::max);
+        Map.Entry<Long, Integer> oldestPin = pins.firstEntry();
+        return oldestPin != null ? Math.min(oldestPin.getKey(), visible) : visible;
+    }
+
+    /**
+     * Schedules release to run once no reader can need what the write at
+     * version replaced. It receives the oldest readable version at that time
+     * and must not take entity locks, as it may run inside another write.
+     */
+    public void retire(long version, LongConsumer release) {
+        retired.add(new Retired(version, release));
+        retiredCount.incrementAndGet();
+    }
+
+    private void releaseRetired() {
+        if (retired.isEmpty() || !releaseLock.tryLock()) {
+            return;
+        }
+        try {
+            long oldest = oldestReadable();
+            Retired next;
+            // Concurrent writers retire slightly out of order; a later entry waits for the one ahead of it
+            while ((next = retired.peek()) != null && next.version <= oldest) {
+                retired.poll();
+                retiredCount.decrementAndGet();
+                releasedCount.incrementAndGet();
+                next.release.accept(oldest);
+            }
+        } finally {
+            releaseLock.unlock();
+        }
+    }
+
+    public int getPinnedReaders() {
+        int readers = 0;
+        for (int count : pins.values()) {
+            readers += count;
+        }
+        return readers;
+    }
+
+    public VersionStatistics getStatistics() {
+        long visible = visibleVersion.get();
+        long oldest = oldestReadable();
+        int readers = getPinnedReaders();
+        return new VersionStatistics(visible, oldest, readers, retiredCount.get(), releasedCount.get());
+    }
+
+    /**
+     * A pinned version. Reads through it see the maps as they were when it
+     * was pinned, however long it is held; close it promptly, since versions
+     * replaced after it are kept until it is closed.
+     */
+    public final class ReadView implements AutoCloseable {
+        private final long version;
+        private boolean closed;
+
+        private ReadView(long version) {
+            this.version = version;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                unpin(version);
+            }
+        }
+    }
+
+    private static class Retired {
+        private final long version;
+        private final LongConsumer release;
+
+        Retired(long version, LongConsumer release) {
+            this.version = version;
+            this.release = release;
+        }
+    }
+
+    public static class VersionStatistics {
+        private final long visibleVersion;
+        private final long oldestReadableVersion;
+        private final int pinnedReaders;
+        private final int retainedVersions;
+        private final long releasedVersions;
+
+        public VersionStatistics(long visibleVersion, long oldestReadableVersion, int pinnedReaders,
+                                 int retainedVersions, long releasedVersions) {
+            this.visibleVersion = visibleVersion;
+            this.oldestReadableVersion = oldestReadableVersion;
+            this.pinnedReaders = pinnedReaders;
+            this.retainedVersions = retainedVersions;
+            this.releasedVersions = releasedVersions;
+        }
+
+        public long getVisibleVersion() { return visibleVersion; }
+        public long getOldestReadableVersion() { return oldestReadableVersion; }
+        public int getPinnedReaders() { return pinnedReaders; }
+        public int getRetainedVersions() { return retainedVersions; }
+        public long getReleasedVersions() { return releasedVersions; }
+
+        @Override
+        public String toString() {
+            return String.format("Version Statistics:\n" +
+                               "- Visible Version: %d\n" +
+                               "- Oldest Readable Version: %d\n" +
+                               "- Pinned Readers: %d\n" +
+                               "- Retained Versions: %d\n" +
+                               "- Released Versions: %d",
+                               visibleVersion, oldestReadableVersion, pinnedReaders, retainedVersions, releasedVersions);
+        }
+    }
+}
\ No newline at end of file
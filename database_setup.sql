@@ -44,6 +44,18 @@ CREATE TABLE IF NOT EXISTS borrow_records (
     FOREIGN KEY (book_id) REFERENCES books(book_id) ON DELETE CASCADE
 );
 
+-- Create holds table; finished holds stay as history
+CREATE TABLE IF NOT EXISTS holds (
+    hold_id VARCHAR(50) PRIMARY KEY,
+    student_id VARCHAR(50) NOT NULL,
+    book_id VARCHAR(50) NOT NULL,
+    placed_at DATETIME(6) NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    ready_until DATE,
+    FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE,
+    FOREIGN KEY (book_id) REFERENCES books(book_id) ON DELETE CASCADE
+);
+
 -- Insert sample data for testing
 INSERT IGNORE INTO students (student_id, student_name, email, address, phone_number) VALUES 
 ('STU001', 'Alice Johnson', 'alice@email.com', '123 Main St', '555-0101'),
@@ -59,13 +71,19 @@ INSERT IGNORE INTO books (book_id, title, author, isbn, genre, total_copies, ava
 
 -- Create indexes for better performance
 CREATE INDEX idx_students_email ON students(email);
-CREATE INDEX idx_books_title ON books(title);
+CREATE INDEX idx_students_name ON students(student_name, student_id);
+CREATE INDEX idx_books_title ON books(title, book_id);
 CREATE INDEX idx_books_author ON books(author);
 CREATE INDEX idx_books_isbn ON books(isbn);
+CREATE INDEX idx_books_genre ON books(genre);
 CREATE INDEX idx_borrow_records_student ON borrow_records(student_id);
 CREATE INDEX idx_borrow_records_book ON borrow_records(book_id);
 CREATE INDEX idx_borrow_records_date ON borrow_records(borrow_date);
 CREATE INDEX idx_borrow_records_due ON borrow_records(due_date);
+CREATE INDEX idx_borrow_records_active_due ON borrow_records(is_returned, due_date);
+CREATE INDEX idx_holds_queue ON holds(book_id, status, placed_at);
+CREATE INDEX idx_holds_student ON holds(student_id, book_id, status);
+CREATE INDEX idx_holds_ready ON holds(status, ready_until);
 
 COMMIT;
 